@@ -0,0 +1,482 @@
+package assignments.Ex3;
+
+/**
+ * A skeleton implementation of Map2D for alternative cell storages.
+ * Subclasses only decide how cells are stored, through linear cell indices (x * getHeight() + y);
+ * the coordinate handling, cyclic flag and the BFS algorithms (fill, shortestPath, allDistance)
+ * are implemented here once, with the same semantics as Map.
+ * The algorithms keep their scratch data small: fill uses the new color as its visited mark,
+ * allDistance uses the result map itself, and shortestPath keeps 4 bits per cell (in a CompactMap).
+ */
+public abstract class AbstractMap2D implements Map2D {
+    protected int _width;
+    protected int _height;
+    // Default cyclic mode is taken from GameInfo.CYCLIC_MODE
+    protected boolean _cyclic = GameInfo.CYCLIC_MODE;
+
+    /**
+     * Allocates storage for w*h cells, all holding v. Called with validated sizes (non-negative,
+     * w*h fits in an int) before the dimensions are set, so it must work from w and h alone;
+     * if it throws, the map keeps its old dimensions.
+     * @param w width
+     * @param h height
+     * @param v initial value
+     */
+    protected abstract void allocate(int w, int h, int v);
+
+    /**
+     * Returns the value stored at a linear cell index (already bounds checked).
+     * @param index linear cell index
+     * @return cell value
+     */
+    protected abstract int get(int index);
+
+    /**
+     * Stores v at a linear cell index (already bounds checked).
+     * @param index linear cell index
+     * @param v new value
+     */
+    protected abstract void set(int index, int v);
+
+    /**
+     * Creates an empty map of the same kind, used for the result of allDistance.
+     * @param w width
+     * @param h height
+     * @param v initial value
+     * @return a new map
+     */
+    protected abstract AbstractMap2D newMap(int w, int h, int v);
+
+    /**
+     * Initializes the map with dimensions w*h and fills it with v.
+     * Throws a RuntimeException if w or h is negative or w*h does not fit in an int.
+     * @param w width
+     * @param h height
+     * @param v initial value
+     */
+    @Override
+    public void init(int w, int h, int v) {
+        if (w < 0 || h < 0 || (long) w * h > Integer.MAX_VALUE) {
+            throw new RuntimeException("illegal map size: " + w + "x" + h);
+        }
+        allocate(w, h, v);
+        _width = w;
+        _height = h;
+    }
+
+    /**
+     * Initializes the map from a 2D array.
+     * Validates that the array is not null, empty, or ragged.
+     * @param arr 2D array source
+     */
+    @Override
+    public void init(int[][] arr) {
+        if (arr == null || arr.length == 0) {
+            throw new RuntimeException("null or empty array");
+        }
+        int h = arr[0].length;
+        if (h == 0) {
+            throw new RuntimeException("empty rows");
+        }
+        for (int x = 0; x < arr.length; x++) {
+            if (arr[x] == null || arr[x].length != h) {
+                throw new RuntimeException("ragged array");
+            }
+        }
+        init(arr.length, h, arr[0][0]);
+        for (int x = 0; x < _width; x++) {
+            int base = x * _height;
+            for (int y = 0; y < _height; y++) {
+                set(base + y, arr[x][y]);
+            }
+        }
+    }
+
+    /**
+     * Returns a deep copy of the map as a 2D array.
+     * @return 2D integer array
+     */
+    @Override
+    public int[][] getMap() {
+        int[][] ans = new int[_width][_height];
+        for (int x = 0; x < _width; x++) {
+            int base = x * _height;
+            for (int y = 0; y < _height; y++) {
+                ans[x][y] = get(base + y);
+            }
+        }
+        return ans;
+    }
+
+    /**
+     * Returns the width of the map.
+     */
+    @Override
+    public int getWidth() {
+        return _width;
+    }
+
+    /**
+     * Returns the height of the map.
+     */
+    @Override
+    public int getHeight() {
+        return _height;
+    }
+
+    /**
+     * Returns the value at (x, y). Returns -1 if out of bounds.
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return pixel value
+     */
+    @Override
+    public int getPixel(int x, int y) {
+        if (x < 0 || x >= _width || y < 0 || y >= _height) {
+            return -1;
+        }
+        return get(x * _height + y);
+    }
+
+    /**
+     * Returns the value at point p. Returns -1 if p is null or out of bounds.
+     * @param p pixel coordinate
+     * @return pixel value
+     */
+    @Override
+    public int getPixel(Pixel2D p) {
+        if (p == null) {
+            return -1;
+        }
+        return getPixel(p.getX(), p.getY());
+    }
+
+    /**
+     * Sets the value at (x, y) to v. Does nothing if out of bounds.
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param v new value
+     */
+    @Override
+    public void setPixel(int x, int y, int v) {
+        if (x < 0 || x >= _width || y < 0 || y >= _height) {
+            return;
+        }
+        set(x * _height + y, v);
+    }
+
+    /**
+     * Sets the value at point p to v. Does nothing if p is null or out of bounds.
+     * @param p pixel coordinate
+     * @param v new value
+     */
+    @Override
+    public void setPixel(Pixel2D p, int v) {
+        if (p == null) {
+            return;
+        }
+        setPixel(p.getX(), p.getY(), v);
+    }
+
+    /**
+     * Checks if point p is inside the map boundaries.
+     * @param p pixel coordinate
+     * @return true if inside, false otherwise
+     */
+    @Override
+    public boolean isInside(Pixel2D p) {
+        if (p == null) {
+            return false;
+        }
+        int x = p.getX();
+        int y = p.getY();
+        return x >= 0 && x < _width && y >= 0 && y < _height;
+    }
+
+    /**
+     * Performs a flood fill (BFS) starting from xy with new_v.
+     * @param xy start point
+     * @param new_v new value to fill
+     * @param cyclic allow wrapping around edges
+     * @return number of pixels filled
+     */
+    public int fill(Pixel2D xy, int new_v, boolean cyclic) {
+        if (!isInside(xy)) {
+            return 0;
+        }
+        int start = xy.getX() * _height + xy.getY();
+        int old_v = get(start);
+        if (old_v == new_v) {
+            return 0;
+        }
+
+        IntQueue q = new IntQueue(64);
+        q.add(start);
+        set(start, new_v);
+        int count = 1;
+
+        while (!q.isEmpty()) {
+            int cur = q.remove();
+            int cx = cur / _height;
+            int cy = cur - cx * _height;
+
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k, cyclic);
+                if (next >= 0 && get(next) == old_v) {
+                    set(next, new_v);
+                    q.add(next);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Computes the shortest path from p1 to p2 using BFS, avoiding obstacles of color 'obsColor'.
+     * @param p1 start point
+     * @param p2 end point
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @return array of points representing the path, or null if no path
+     */
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        if (!isInside(p1) || !isInside(p2)) {
+            return null;
+        }
+        return shortestPath(p1, p2, obsColor, cyclic, new CompactMap(_width, _height, 0));
+    }
+
+    /**
+     * shortestPath with the per-cell step marks kept in a given scratch map, so a backend can
+     * keep them off the heap. Both points must be inside the map.
+     * @param from scratch map of this map's dimensions, all cells 0; only values 0..5 are stored
+     * @return array of points representing the path, or null if no path
+     */
+    protected final Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic, AbstractMap2D from) {
+        int source = p1.getX() * _height + p1.getY();
+        int target = p2.getX() * _height + p2.getY();
+        if (get(source) == obsColor || get(target) == obsColor) {
+            return null;
+        }
+
+        // from holds (k + 1) where k is the neighbor step that reached a cell; 0 means "not visited yet".
+        IntQueue q = new IntQueue(64);
+        from.set(source, 5);
+        q.add(source);
+
+        while (!q.isEmpty()) {
+            int cur = q.remove();
+            if (cur == target) {
+                break;
+            }
+            int cx = cur / _height;
+            int cy = cur - cx * _height;
+
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k, cyclic);
+                if (next < 0 || from.get(next) != 0 || get(next) == obsColor) {
+                    continue;
+                }
+                from.set(next, k + 1);
+                q.add(next);
+            }
+        }
+
+        if (from.get(target) == 0) {
+            return null;
+        }
+
+        int len = 1;
+        for (int step = target; step != source; len++) {
+            step = neighbor(step / _height, step % _height, (from.get(step) - 1) ^ 1, true);
+        }
+        Pixel2D[] path = new Pixel2D[len];
+        int step = target;
+        for (int i = len - 1; i >= 0; i--) {
+            path[i] = new Index2D(step / _height, step % _height);
+            if (i > 0) {
+                step = neighbor(step / _height, step % _height, (from.get(step) - 1) ^ 1, true);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Computes the distance from start to all reachable points (BFS).
+     * Unreachable or obstacle pixels are marked with -1.
+     * @param start start point
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @return a map (of the same kind as this one) containing distances
+     */
+    public Map2D allDistance(Pixel2D start, int obsColor, boolean cyclic) {
+        if (!isInside(start)) {
+            return null;
+        }
+        int source = start.getX() * _height + start.getY();
+        if (get(source) == obsColor) {
+            return null;
+        }
+
+        AbstractMap2D dist = newMap(_width, _height, -1);
+        IntQueue q = new IntQueue(64);
+        dist.set(source, 0);
+        q.add(source);
+
+        while (!q.isEmpty()) {
+            int cur = q.remove();
+            int cx = cur / _height;
+            int cy = cur - cx * _height;
+            int cd = dist.get(cur);
+
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k, cyclic);
+                if (next < 0 || get(next) == obsColor) {
+                    continue;
+                }
+                if (dist.get(next) == -1) {
+                    dist.set(next, cd + 1);
+                    q.add(next);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Fills the map starting from p with new_v. Uses the map's cyclic setting.
+     * @param p start point
+     * @param new_v new value
+     * @return number of pixels filled
+     */
+    @Override
+    public int fill(Pixel2D p, int new_v) {
+        return fill(p, new_v, _cyclic);
+    }
+
+    /**
+     * Computes shortest path from p1 to p2. Uses the map's cyclic setting.
+     * @param p1 start point
+     * @param p2 end point
+     * @param obsColor obstacle color
+     * @return path array
+     */
+    @Override
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor) {
+        return shortestPath(p1, p2, obsColor, _cyclic);
+    }
+
+    /**
+     * Computes distances from start to all pixels. Uses the map's cyclic setting.
+     * @param start start point
+     * @param obsColor obstacle color
+     * @return Distance map
+     */
+    @Override
+    public Map2D allDistance(Pixel2D start, int obsColor) {
+        return allDistance(start, obsColor, _cyclic);
+    }
+
+    /**
+     * Checks if two maps are equal (same dimensions and same content), whatever their storage,
+     * the same rule as Map.equals.
+     */
+    @Override
+    public boolean equals(Object ob) {
+        if (this == ob) {
+            return true;
+        }
+        if (!(ob instanceof Map2D)) {
+            return false;
+        }
+        Map2D other = (Map2D) ob;
+        if (other.getWidth() != _width || other.getHeight() != _height) {
+            return false;
+        }
+        for (int x = 0; x < _width; x++) {
+            int base = x * _height;
+            for (int y = 0; y < _height; y++) {
+                if (get(base + y) != other.getPixel(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the same content hash as Map.hashCode, so equal maps hash alike whatever their storage.
+     * It is recomputed from the cells on every call.
+     */
+    @Override
+    public int hashCode() {
+        long h = Map.zobristKey(_width, _height);
+        int n = _width * _height;
+        for (int i = 0; i < n; i++) {
+            h ^= Map.zobristKey(i, get(i));
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Sets the cyclic flag for this map.
+     * @param cyclic true to enable wrapping, false to disable
+     */
+    @Override
+    public void setCyclic(boolean cyclic) {
+        _cyclic = cyclic;
+    }
+
+    /**
+     * Checks if the map is cyclic.
+     * @return true if cyclic
+     */
+    @Override
+    public boolean isCyclic() {
+        return _cyclic;
+    }
+
+    /**
+     * Returns the linear index of the k-th neighbor of (x, y), in the order
+     * right, left, up, down (x+1, x-1, y+1, y-1), the same order Map uses.
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param k neighbor number [0,3]
+     * @param cyclic allow wrapping
+     * @return neighbor index, or -1 if it falls outside a non-cyclic map
+     */
+    protected final int neighbor(int x, int y, int k, boolean cyclic) {
+        switch (k) {
+            case 0:
+                x++;
+                if (x >= _width) {
+                    if (!cyclic) return -1;
+                    x = 0;
+                }
+                break;
+            case 1:
+                x--;
+                if (x < 0) {
+                    if (!cyclic) return -1;
+                    x = _width - 1;
+                }
+                break;
+            case 2:
+                y++;
+                if (y >= _height) {
+                    if (!cyclic) return -1;
+                    y = 0;
+                }
+                break;
+            default:
+                y--;
+                if (y < 0) {
+                    if (!cyclic) return -1;
+                    y = _height - 1;
+                }
+                break;
+        }
+        return x * _height + y;
+    }
+}
@@ -0,0 +1,265 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * Bit-parallel breadth-first search for passability-only questions: flood-fill area, reachability
+ * and layered distance rings. Each column of the map is a run of long words with one bit per row,
+ * so one BFS layer is a handful of word operations per column: the frontier shifted one row up and
+ * one row down (rotated within the column height when cyclic), ORed with the neighboring columns,
+ * ANDed with the free-cell mask and with the complement of the visited set. 64 cells move per operation.
+ * The start cell of a search is always counted as reached, even if it is blocked (it is where the
+ * searcher stands); everything else must be free.
+ * An instance keeps its scratch boards and is not thread safe.
+ */
+public final class BitboardBfs {
+    private final int _width;
+    private final int _height;
+    private final boolean _cyclic;
+    private final int _words;
+    private final long[] _free;
+    private long[] _frontier;
+    private long[] _next;
+    private final long[] _visited;
+
+    /**
+     * Builds the engine for a map, using the map's cyclic setting.
+     * @param map the map (copied)
+     * @param obsColor obstacle color
+     */
+    public BitboardBfs(Map map, int obsColor) {
+        this(map, obsColor, map.isCyclic());
+    }
+
+    /**
+     * Builds the engine for a map.
+     * @param map the map (copied)
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     */
+    public BitboardBfs(Map map, int obsColor, boolean cyclic) {
+        this(map.getWidth(), map.getHeight(), cyclic);
+        for (int i = 0; i < map.size(); i++) {
+            if (map.getPixelAt(i) != obsColor) {
+                int x = i / _height;
+                setFree(x, i - x * _height, true);
+            }
+        }
+    }
+
+    /**
+     * Builds an engine with every cell blocked; open cells with setFree.
+     */
+    BitboardBfs(int width, int height, boolean cyclic) {
+        _width = width;
+        _height = height;
+        _cyclic = cyclic;
+        _words = (height + 63) >>> 6;
+        _free = new long[width * _words];
+        _frontier = new long[_free.length];
+        _next = new long[_free.length];
+        _visited = new long[_free.length];
+    }
+
+    /**
+     * Marks a cell as free or blocked.
+     */
+    void setFree(int x, int y, boolean free) {
+        int w = x * _words + (y >>> 6);
+        if (free) {
+            _free[w] |= 1L << y;
+        } else {
+            _free[w] &= ~(1L << y);
+        }
+    }
+
+    /**
+     * Counts the cells reachable from start (start included), stopping early at limit.
+     * @param x start x
+     * @param y start y
+     * @param limit the most cells worth counting
+     * @return min(reachable cells, limit), or 0 if limit is not positive
+     */
+    public int floodCount(int x, int y, int limit) {
+        if (limit <= 0) {
+            return 0;
+        }
+        begin(x, y);
+        int count = 1;
+        while (count < limit) {
+            int layer = expand();
+            if (layer == 0) {
+                break;
+            }
+            count += layer;
+        }
+        return Math.min(count, limit);
+    }
+
+    /**
+     * @return number of cells reachable from start, start included
+     */
+    public int floodCount(Pixel2D start) {
+        return floodCount(start.getX(), start.getY(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return true iff b can be reached from a
+     */
+    public boolean reachable(Pixel2D a, Pixel2D b) {
+        return distance(a, b) >= 0;
+    }
+
+    /**
+     * @return the shortest-path distance from a to b, or -1 if b cannot be reached
+     */
+    public int distance(Pixel2D a, Pixel2D b) {
+        begin(a.getX(), a.getY());
+        int target = b.getX() * _words + (b.getY() >>> 6);
+        long bit = 1L << b.getY();
+        for (int d = 0; ; d++) {
+            if ((_frontier[target] & bit) != 0) {
+                return d;
+            }
+            if (expand() == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the sizes of the distance rings around start: ring d holds the cells at distance exactly d.
+     * @param start start point
+     * @param maxDist last ring to compute
+     * @return ring sizes, index 0 (the start) up to the last non-empty ring not beyond maxDist
+     */
+    public int[] ringSizes(Pixel2D start, int maxDist) {
+        begin(start.getX(), start.getY());
+        int[] rings = new int[16];
+        rings[0] = 1;
+        int d = 0;
+        while (d < maxDist) {
+            int layer = expand();
+            if (layer == 0) {
+                break;
+            }
+            if (++d == rings.length) {
+                rings = Arrays.copyOf(rings, d * 2);
+            }
+            rings[d] = layer;
+        }
+        return Arrays.copyOf(rings, d + 1);
+    }
+
+    /**
+     * Writes every ring into a distance map, the same result as Map.allDistance when start is free.
+     * @param start start point
+     * @return distance map (-1 for unreached cells)
+     */
+    public Map2D distances(Pixel2D start) {
+        Map out = new Map(_width, _height, -1);
+        begin(start.getX(), start.getY());
+        out.setPixel(start.getX(), start.getY(), 0);
+        for (int d = 1; expand() > 0; d++) {
+            for (int i = 0; i < _frontier.length; i++) {
+                long bits = _frontier[i];
+                while (bits != 0) {
+                    int y = (i % _words << 6) + Long.numberOfTrailingZeros(bits);
+                    out.setPixel(i / _words, y, d);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return out;
+    }
+
+    private void begin(int x, int y) {
+        Arrays.fill(_frontier, 0);
+        Arrays.fill(_visited, 0);
+        int w = x * _words + (y >>> 6);
+        _frontier[w] = 1L << y;
+        _visited[w] = 1L << y;
+    }
+
+    /**
+     * Advances the frontier by one layer: frontier = neighbors(frontier) & free & ~visited.
+     * @return number of cells in the new frontier
+     */
+    private int expand() {
+        int count = _words == 1 ? expandNarrow() : expandWide();
+        long[] t = _frontier;
+        _frontier = _next;
+        _next = t;
+        return count;
+    }
+
+    /**
+     * expand for maps of at most 64 rows: one word per column, rotation within the word.
+     */
+    private int expandNarrow() {
+        long[] f = _frontier;
+        long[] n = _next;
+        int last = _width - 1;
+        int topBit = _height - 1;
+        int count = 0;
+        for (int x = 0; x <= last; x++) {
+            long left = x > 0 ? f[x - 1] : (_cyclic ? f[last] : 0);
+            long right = x < last ? f[x + 1] : (_cyclic ? f[0] : 0);
+            long v = f[x];
+            if ((left | v | right) == 0) {
+                n[x] = 0;
+                continue;
+            }
+            long vertical = v << 1 | v >>> 1;
+            if (_cyclic) {
+                vertical |= (v >>> topBit) & 1L | (v & 1L) << topBit;
+            }
+            long grown = (vertical | left | right) & _free[x] & ~_visited[x];
+            n[x] = grown;
+            _visited[x] |= grown;
+            count += Long.bitCount(grown);
+        }
+        return count;
+    }
+
+    /**
+     * expand for taller maps: columns span several words, with carries between them.
+     */
+    private int expandWide() {
+        long[] f = _frontier;
+        long[] n = _next;
+        int words = _words;
+        int top = words - 1;
+        int topBit = (_height - 1) & 63;
+        int count = 0;
+        for (int x = 0; x < _width; x++) {
+            int col = x * words;
+            int left = x > 0 ? col - words : (_cyclic ? (_width - 1) * words : -1);
+            int right = x < _width - 1 ? col + words : (_cyclic ? 0 : -1);
+            for (int j = 0; j < words; j++) {
+                int i = col + j;
+                long v = f[i];
+                long side = (left >= 0 ? f[left + j] : 0) | (right >= 0 ? f[right + j] : 0);
+                // Row y+1: shift up, carrying the top bit of the word below.
+                long up = v << 1;
+                if (j > 0) {
+                    up |= f[i - 1] >>> 63;
+                } else if (_cyclic) {
+                    up |= (f[col + top] >>> topBit) & 1L;
+                }
+                // Row y-1: shift down, carrying the bottom bit of the word above.
+                long down = v >>> 1;
+                if (j < top) {
+                    down |= f[i + 1] << 63;
+                } else if (_cyclic) {
+                    down |= (f[col] & 1L) << topBit;
+                }
+                long grown = (up | down | side) & _free[i] & ~_visited[i];
+                n[i] = grown;
+                _visited[i] |= grown;
+                count += Long.bitCount(grown);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,55 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardBfsTest {
+
+    private static final int WALL = 1;
+
+    // Verifies bitboard distances equal allDistance on short and tall (multi-word) maps, cyclic or not.
+    @Test
+    void testDistancesMatchAllDistance() {
+        int[][] sizes = {{22, 22}, {30, 150}};
+        for (int[] size : sizes) {
+            for (boolean cyclic : new boolean[] {false, true}) {
+                Map m = new Map(size[0], size[1], 0);
+                m.drawLine(new Index2D(5, 0), new Index2D(5, size[1] - 3), WALL);
+                m.drawRect(new Index2D(10, 10), new Index2D(20, 12), WALL);
+                Index2D start = new Index2D(2, 1);
+                BitboardBfs bfs = new BitboardBfs(m, WALL, cyclic);
+
+                assertEquals(m.allDistance(start, WALL, cyclic), bfs.distances(start));
+                Index2D far = new Index2D(size[0] - 1, size[1] - 1);
+                assertEquals(m.allDistance(start, WALL, cyclic).getPixel(far), bfs.distance(start, far));
+            }
+        }
+    }
+
+    // Verifies flood counts, the count limit and reachability across a wall.
+    @Test
+    void testFloodCountAndReachability() {
+        Map m = new Map(20, 10, 0);
+        m.drawLine(new Index2D(8, 0), new Index2D(8, 9), WALL);
+        BitboardBfs flat = new BitboardBfs(m, WALL, false);
+        BitboardBfs torus = new BitboardBfs(m, WALL, true);
+
+        assertEquals(80, flat.floodCount(new Index2D(0, 0)));
+        assertEquals(190, torus.floodCount(new Index2D(0, 0)));
+        assertEquals(50, torus.floodCount(0, 0, 50));
+        assertFalse(flat.reachable(new Index2D(0, 0), new Index2D(19, 0)));
+        assertTrue(torus.reachable(new Index2D(0, 0), new Index2D(19, 0)));
+        assertEquals(1, torus.distance(new Index2D(0, 0), new Index2D(19, 0)));
+    }
+
+    // Verifies distance rings around a start on an open torus.
+    @Test
+    void testRingSizes() {
+        BitboardBfs open = new BitboardBfs(new Map(9, 9, 0), WALL, true);
+        int[] rings = open.ringSizes(new Index2D(4, 4), 100);
+
+        assertArrayEquals(new int[] {1, 4, 8, 12, 16, 16, 12, 8, 4}, rings);
+        assertArrayEquals(new int[] {1, 4, 8}, open.ringSizes(new Index2D(0, 0), 2));
+    }
+}
@@ -0,0 +1,144 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Whole-map arithmetic on flat int[] cell arrays, used by Map.
+ * Each kernel is a plain counted loop over a contiguous range, the shape the JIT
+ * turns into SIMD code (Arrays.fill and Arrays.equals are intrinsics as well).
+ * Arrays of at least PARALLEL_THRESHOLD cells are split into bands that run on the
+ * common fork-join pool; smaller ones run on the calling thread.
+ * Results are exactly the same as the scalar loops.
+ */
+final class BulkOps {
+    static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int MIN_BAND = 1 << 16;
+
+    private BulkOps() {
+    }
+
+    /**
+     * dst[i] += src[i] for every cell (int overflow wraps, as with +=).
+     */
+    static void add(int[] dst, int[] src) {
+        if (dst.length < PARALLEL_THRESHOLD) {
+            add(dst, src, 0, dst.length);
+            return;
+        }
+        invoke(dst.length, (from, to) -> add(dst, src, from, to));
+    }
+
+    /**
+     * data[i] = (int) (data[i] * scalar) for every cell.
+     */
+    static void mul(int[] data, double scalar) {
+        if (data.length < PARALLEL_THRESHOLD) {
+            mul(data, scalar, 0, data.length);
+            return;
+        }
+        invoke(data.length, (from, to) -> mul(data, scalar, from, to));
+    }
+
+    /**
+     * Sets every cell to v.
+     */
+    static void fill(int[] data, int v) {
+        if (data.length < PARALLEL_THRESHOLD) {
+            Arrays.fill(data, v);
+            return;
+        }
+        invoke(data.length, (from, to) -> Arrays.fill(data, from, to, v));
+    }
+
+    /**
+     * @return true iff both arrays have the same length and content.
+     */
+    static boolean equals(int[] a, int[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        if (a.length < PARALLEL_THRESHOLD) {
+            return Arrays.equals(a, b);
+        }
+        return ForkJoinPool.commonPool().invoke(new EqualsBand(a, b, 0, a.length));
+    }
+
+    private static void add(int[] dst, int[] src, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] += src[i];
+        }
+    }
+
+    private static void mul(int[] data, double scalar, int from, int to) {
+        for (int i = from; i < to; i++) {
+            data[i] = (int) (data[i] * scalar);
+        }
+    }
+
+    /**
+     * A kernel applied to one contiguous range of cells.
+     */
+    private interface RangeOp {
+        void run(int from, int to);
+    }
+
+    private static void invoke(int length, RangeOp op) {
+        ForkJoinPool.commonPool().invoke(new Band(op, 0, length));
+    }
+
+    /**
+     * Splits [from, to) in halves until a band is at most MIN_BAND cells, then runs the kernel on it.
+     */
+    @SuppressWarnings("serial")
+    private static final class Band extends RecursiveAction {
+        private final RangeOp _op;
+        private final int _from;
+        private final int _to;
+
+        Band(RangeOp op, int from, int to) {
+            _op = op;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (_to - _from <= MIN_BAND) {
+                _op.run(_from, _to);
+                return;
+            }
+            int mid = (_from + _to) >>> 1;
+            invokeAll(new Band(_op, _from, mid), new Band(_op, mid, _to));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class EqualsBand extends RecursiveTask<Boolean> {
+        private final int[] _a;
+        private final int[] _b;
+        private final int _from;
+        private final int _to;
+
+        EqualsBand(int[] a, int[] b, int from, int to) {
+            _a = a;
+            _b = b;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (_to - _from <= MIN_BAND) {
+                return Arrays.equals(_a, _from, _to, _b, _from, _to);
+            }
+            int mid = (_from + _to) >>> 1;
+            EqualsBand right = new EqualsBand(_a, _b, mid, _to);
+            right.fork();
+            boolean left = new EqualsBand(_a, _b, _from, mid).compute();
+            return right.join() && left;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * A sparse Map2D that splits the board into TILE x TILE chunks.
+ * A chunk whose cells all share one value is stored as that single value, and is only
+ * expanded to a real array on the first write of a different value; collapse() folds
+ * uniform chunks back. init(w, h, v) therefore costs O(number of chunks), not O(w*h).
+ * fill() recolors a whole uniform chunk in O(1) and only walks its border cells,
+ * so flood fills over big open areas skip the chunk interiors.
+ */
+public class ChunkedMap extends AbstractMap2D {
+    private static final int TILE_SHIFT = 4;
+    private static final int TILE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE - 1;
+
+    private int _tilesX;
+    private int _tilesY;
+    // _chunks[t] == null means chunk t is uniform, holding _uniform[t] in every cell.
+    private int[][] _chunks;
+    private int[] _uniform;
+
+    /**
+     * Constructs a map of size w*h, filled with value v.
+     * @param w width
+     * @param h height
+     * @param v initial value
+     */
+    public ChunkedMap(int w, int h, int v) {
+        init(w, h, v);
+    }
+
+    /**
+     * Constructs a map from a given 2D array.
+     * @param data 2D array of integers
+     */
+    public ChunkedMap(int[][] data) {
+        init(data);
+        collapse();
+    }
+
+    /**
+     * Returns the number of chunks currently expanded to a real array.
+     * @return number of expanded chunks
+     */
+    public int expandedChunks() {
+        int count = 0;
+        for (int[] c : _chunks) {
+            if (c != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Folds every expanded chunk whose cells all hold the same value back to a single value.
+     */
+    public void collapse() {
+        for (int t = 0; t < _chunks.length; t++) {
+            int[] c = _chunks[t];
+            if (c == null) {
+                continue;
+            }
+            int tx = t / _tilesY;
+            int ty = t - tx * _tilesY;
+            int v = c[0];
+            boolean uniform = true;
+            int xEnd = Math.min(TILE, _width - (tx << TILE_SHIFT));
+            int yEnd = Math.min(TILE, _height - (ty << TILE_SHIFT));
+            for (int i = 0; i < xEnd && uniform; i++) {
+                for (int j = 0; j < yEnd; j++) {
+                    if (c[(i << TILE_SHIFT) | j] != v) {
+                        uniform = false;
+                        break;
+                    }
+                }
+            }
+            if (uniform) {
+                _chunks[t] = null;
+                _uniform[t] = v;
+            }
+        }
+    }
+
+    @Override
+    public int getPixel(int x, int y) {
+        if (x < 0 || x >= _width || y < 0 || y >= _height) {
+            return -1;
+        }
+        return cell(x, y);
+    }
+
+    @Override
+    protected void allocate(int w, int h, int v) {
+        _tilesX = (w + TILE_MASK) >>> TILE_SHIFT;
+        _tilesY = (h + TILE_MASK) >>> TILE_SHIFT;
+        _chunks = new int[_tilesX * _tilesY][];
+        _uniform = new int[_chunks.length];
+        Arrays.fill(_uniform, v);
+    }
+
+    @Override
+    protected int get(int index) {
+        int x = index / _height;
+        return cell(x, index - x * _height);
+    }
+
+    @Override
+    protected void set(int index, int v) {
+        int x = index / _height;
+        int y = index - x * _height;
+        int t = (x >>> TILE_SHIFT) * _tilesY + (y >>> TILE_SHIFT);
+        int[] c = _chunks[t];
+        if (c == null) {
+            if (_uniform[t] == v) {
+                return;
+            }
+            c = new int[TILE * TILE];
+            Arrays.fill(c, _uniform[t]);
+            _chunks[t] = c;
+        }
+        c[((x & TILE_MASK) << TILE_SHIFT) | (y & TILE_MASK)] = v;
+    }
+
+    @Override
+    protected AbstractMap2D newMap(int w, int h, int v) {
+        return new ChunkedMap(w, h, v);
+    }
+
+    /**
+     * Performs a flood fill (BFS) starting from xy with new_v.
+     * A uniform chunk of the old color is recolored as a whole, and only its border cells are queued.
+     * @param xy start point
+     * @param new_v new value to fill
+     * @param cyclic allow wrapping around edges
+     * @return number of pixels filled
+     */
+    @Override
+    public int fill(Pixel2D xy, int new_v, boolean cyclic) {
+        if (!isInside(xy)) {
+            return 0;
+        }
+        int old_v = cell(xy.getX(), xy.getY());
+        if (old_v == new_v) {
+            return 0;
+        }
+
+        IntQueue q = new IntQueue(64);
+        int count = paint(xy.getX() * _height + xy.getY(), old_v, new_v, q);
+
+        while (!q.isEmpty()) {
+            int cur = q.remove();
+            int cx = cur / _height;
+            int cy = cur - cx * _height;
+
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k, cyclic);
+                if (next >= 0 && get(next) == old_v) {
+                    count += paint(next, old_v, new_v, q);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Recolors a cell holding old_v and queues what still needs to be expanded.
+     * If the cell's chunk is uniform, the whole chunk is recolored and its border cells are queued.
+     * @return number of recolored cells
+     */
+    private int paint(int index, int old_v, int new_v, IntQueue q) {
+        int x = index / _height;
+        int y = index - x * _height;
+        int tx = x >>> TILE_SHIFT;
+        int ty = y >>> TILE_SHIFT;
+        int t = tx * _tilesY + ty;
+        if (_chunks[t] != null) {
+            set(index, new_v);
+            q.add(index);
+            return 1;
+        }
+        _uniform[t] = new_v;
+        int x0 = tx << TILE_SHIFT;
+        int y0 = ty << TILE_SHIFT;
+        int x1 = Math.min(x0 + TILE, _width) - 1;
+        int y1 = Math.min(y0 + TILE, _height) - 1;
+        // Interior cells only touch cells of this chunk, which now all hold new_v.
+        for (int i = x0; i <= x1; i++) {
+            if (i == x0 || i == x1) {
+                for (int j = y0; j <= y1; j++) {
+                    q.add(i * _height + j);
+                }
+            } else {
+                q.add(i * _height + y0);
+                if (y1 != y0) {
+                    q.add(i * _height + y1);
+                }
+            }
+        }
+        return (x1 - x0 + 1) * (y1 - y0 + 1);
+    }
+
+    private int cell(int x, int y) {
+        int t = (x >>> TILE_SHIFT) * _tilesY + (y >>> TILE_SHIFT);
+        int[] c = _chunks[t];
+        if (c == null) {
+            return _uniform[t];
+        }
+        return c[((x & TILE_MASK) << TILE_SHIFT) | (y & TILE_MASK)];
+    }
+}
@@ -0,0 +1,67 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedMapTest extends AbstractMap2DTest {
+
+    @Override
+    protected Map2D newMap(int w, int h, int v) {
+        return new ChunkedMap(w, h, v);
+    }
+
+    @Override
+    protected Map2D newMap(int[][] data) {
+        return new ChunkedMap(data);
+    }
+
+    // Verifies init keeps every chunk collapsed and a write expands only its own chunk.
+    @Test
+    void testUniformChunksExpandOnWrite() {
+        ChunkedMap m = new ChunkedMap(100, 70, 0);
+        assertEquals(0, m.expandedChunks());
+
+        m.setPixel(40, 40, 0);
+        assertEquals(0, m.expandedChunks());
+
+        m.setPixel(40, 40, WALL);
+        assertEquals(1, m.expandedChunks());
+        assertEquals(WALL, m.getPixel(40, 40));
+        assertEquals(0, m.getPixel(41, 40));
+
+        m.setPixel(40, 40, 0);
+        m.collapse();
+        assertEquals(0, m.expandedChunks());
+    }
+
+    // Verifies fill over uniform chunks counts and recolors exactly the connected component.
+    @Test
+    void testFillAcrossUniformChunks() {
+        ChunkedMap m = new ChunkedMap(50, 40, 0);
+        m.setCyclic(false);
+        for (int y = 0; y < 40; y++) {
+            m.setPixel(20, y, WALL);
+        }
+
+        int filled = m.fill(new Index2D(0, 0), 3);
+
+        assertEquals(20 * 40, filled);
+        assertEquals(3, m.getPixel(19, 39));
+        assertEquals(WALL, m.getPixel(20, 5));
+        assertEquals(0, m.getPixel(21, 5));
+    }
+
+    // Verifies a cyclic fill wraps around the map border between edge chunks.
+    @Test
+    void testCyclicFillWrapsEdgeChunks() {
+        ChunkedMap m = new ChunkedMap(50, 40, 0);
+        m.setCyclic(true);
+        for (int y = 0; y < 40; y++) {
+            m.setPixel(20, y, WALL);
+        }
+
+        assertEquals(49 * 40, m.fill(new Index2D(0, 0), 3));
+        assertEquals(3, m.getPixel(49, 0));
+    }
+}
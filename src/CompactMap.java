@@ -0,0 +1,145 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * A Map2D that packs its cells into 4 or 8 bits each inside a long[].
+ * Game boards only use a handful of small values (0 empty, 1 wall, 3 food, 5 power),
+ * so a board costs 4 bits per cell instead of 32.
+ * Cells are stored with a bias of +1, so -1 (the "unreachable" distance) is representable:
+ * 4 bits hold values in [-1,14], 8 bits hold values in [-1,254].
+ * Writing a value that does not fit widens the whole map to the next size (4 -> 8 -> 32 bits).
+ */
+public class CompactMap extends AbstractMap2D {
+    private static final int WIDE = 32;
+
+    private int _bits;
+    private long[] _packed;
+    private int[] _wide;
+
+    /**
+     * Constructs a map of size w*h, filled with value v.
+     * @param w width
+     * @param h height
+     * @param v initial value
+     */
+    public CompactMap(int w, int h, int v) {
+        init(w, h, v);
+    }
+
+    /**
+     * Constructs a map from a given 2D array.
+     * @param data 2D array of integers
+     */
+    public CompactMap(int[][] data) {
+        init(data);
+    }
+
+    /**
+     * Returns the number of bits currently used per cell: 4, 8 or 32.
+     * @return bits per cell
+     */
+    public int getBitsPerCell() {
+        return _bits;
+    }
+
+    @Override
+    protected void allocate(int w, int h, int v) {
+        long size = (long) w * h;
+        if (w < 0 || h < 0 || size > Integer.MAX_VALUE) {
+            throw new RuntimeException("illegal map size: " + w + "x" + h);
+        }
+        int n = (int) size;
+        _bits = bitsFor(v);
+        if (_bits == WIDE) {
+            _packed = null;
+            _wide = new int[n];
+            Arrays.fill(_wide, v);
+            return;
+        }
+        _wide = null;
+        int perWord = 64 / _bits;
+        _packed = new long[words(n, perWord)];
+        long word = 0;
+        for (int i = 0; i < perWord; i++) {
+            word |= (long) (v + 1) << (i * _bits);
+        }
+        Arrays.fill(_packed, word);
+    }
+
+    @Override
+    protected int get(int index) {
+        if (_bits == 4) {
+            return (int) ((_packed[index >>> 4] >>> ((index & 15) << 2)) & 0xF) - 1;
+        }
+        if (_bits == 8) {
+            return (int) ((_packed[index >>> 3] >>> ((index & 7) << 3)) & 0xFF) - 1;
+        }
+        return _wide[index];
+    }
+
+    @Override
+    protected void set(int index, int v) {
+        if (_bits != WIDE && bitsFor(v) > _bits) {
+            widen(bitsFor(v));
+        }
+        if (_bits == 4) {
+            int w = index >>> 4;
+            int shift = (index & 15) << 2;
+            _packed[w] = (_packed[w] & ~(0xFL << shift)) | ((long) (v + 1) << shift);
+        } else if (_bits == 8) {
+            int w = index >>> 3;
+            int shift = (index & 7) << 3;
+            _packed[w] = (_packed[w] & ~(0xFFL << shift)) | ((long) (v + 1) << shift);
+        } else {
+            _wide[index] = v;
+        }
+    }
+
+    @Override
+    protected AbstractMap2D newMap(int w, int h, int v) {
+        return new CompactMap(w, h, v);
+    }
+
+    /**
+     * Returns the number of words holding n cells at perWord cells per word (without int overflow).
+     */
+    private static int words(int n, int perWord) {
+        return (int) (((long) n + perWord - 1) / perWord);
+    }
+
+    /**
+     * Returns the smallest cell size (in bits) able to hold v.
+     */
+    private static int bitsFor(int v) {
+        if (v >= -1 && v <= 14) {
+            return 4;
+        }
+        if (v >= -1 && v <= 254) {
+            return 8;
+        }
+        return WIDE;
+    }
+
+    /**
+     * Re-encodes every cell with the given (larger) number of bits.
+     */
+    private void widen(int bits) {
+        int n = _width * _height;
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = get(i);
+        }
+        _bits = bits;
+        if (bits == WIDE) {
+            _packed = null;
+            _wide = values;
+            return;
+        }
+        int perWord = 64 / bits;
+        _packed = new long[words(n, perWord)];
+        for (int i = 0; i < n; i++) {
+            set(i, values[i]);
+        }
+    }
+}
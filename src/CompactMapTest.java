@@ -0,0 +1,76 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactMapTest extends AbstractMap2DTest {
+
+    @Override
+    protected Map2D newMap(int w, int h, int v) {
+        return new CompactMap(w, h, v);
+    }
+
+    @Override
+    protected Map2D newMap(int[][] data) {
+        return new CompactMap(data);
+    }
+
+    // Verifies a board made of game values is stored with 4 bits per cell.
+    @Test
+    void testGameValuesUseFourBits() {
+        CompactMap m = new CompactMap(new int[][]{
+                {0, 1, 3},
+                {5, 0, 1}
+        });
+        assertEquals(4, m.getBitsPerCell());
+        assertEquals(5, m.getPixel(1, 0));
+        assertEquals(3, m.getPixel(0, 2));
+        assertEquals(-1, m.getPixel(2, 0));
+    }
+
+    // Verifies the map widens its cells when a value does not fit, keeping the old values.
+    @Test
+    void testWidensOnOverflow() {
+        CompactMap m = new CompactMap(20, 20, 3);
+        m.setPixel(4, 7, 200);
+        assertEquals(8, m.getBitsPerCell());
+        m.setPixel(5, 7, -9);
+        assertEquals(32, m.getBitsPerCell());
+
+        assertEquals(200, m.getPixel(4, 7));
+        assertEquals(-9, m.getPixel(5, 7));
+        assertEquals(3, m.getPixel(19, 19));
+    }
+
+    // Verifies fill, shortestPath and allDistance behave like Map on a cyclic board.
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testAlgorithmsMatchMap() {
+        int[][] arr = new int[][]{
+                {0, 1, 0},
+                {1, 1, 1},
+                {0, 1, 0}
+        };
+        Map2D ref = new Map(arr);
+        Map2D m = new CompactMap(arr);
+        ref.setCyclic(true);
+        m.setCyclic(true);
+
+        assertArrayEquals(ref.shortestPath(new Index2D(0, 0), new Index2D(2, 2), WALL),
+                m.shortestPath(new Index2D(0, 0), new Index2D(2, 2), WALL));
+        assertArrayEquals(ref.allDistance(new Index2D(0, 0), WALL).getMap(),
+                m.allDistance(new Index2D(0, 0), WALL).getMap());
+        assertEquals(ref.fill(new Index2D(0, 0), 9), m.fill(new Index2D(0, 0), 9));
+        assertArrayEquals(ref.getMap(), m.getMap());
+    }
+
+    // Verifies negative sizes and sizes whose cell count overflows an int are rejected.
+    @Test
+    void testRejectsIllegalSize() {
+        assertThrows(RuntimeException.class, () -> new CompactMap(-1, 4, 0));
+        assertThrows(RuntimeException.class, () -> new CompactMap(1 << 16, 1 << 16, 0));
+    }
+}
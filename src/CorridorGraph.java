@@ -0,0 +1,501 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * A maze compressed into a graph of junctions and corridors.
+ * Nodes are the passable cells whose number of distinct passable neighbors is not 2
+ * (junctions, dead ends and isolated cells). Every maximal chain of 2-neighbor cells between two
+ * nodes becomes one edge, with its length in steps and its interior cells in order; two adjacent
+ * nodes are joined by an edge of length 1 with no interior. A corridor that closes on itself
+ * without any junction (a pure cycle) gets one of its cells promoted to a node, so it is a loop edge.
+ * Every passable cell is either a node or lies on exactly one edge at a known offset from the
+ * edge's "from" end, so distance and path queries run Dijkstra over the nodes only.
+ * The graph is a snapshot: later changes to the map are not seen.
+ */
+public final class CorridorGraph {
+    // Dijkstra "via" markers for the first nodes, reached from the source along its own edge.
+    private static final int FROM_END = -1;
+    private static final int TO_END = -2;
+
+    private final int _width;
+    private final int _height;
+    private final boolean _cyclic;
+    private final long[] _free;
+    // Per cell: node id (or -1), and for corridor cells the edge id and offset from the edge's from end.
+    private final int[] _nodeOf;
+    private final int[] _edgeOf;
+    private final int[] _offset;
+
+    private int[] _nodeCell = new int[16];
+    private int _nodeCount;
+    private int[] _edgeFrom = new int[16];
+    private int[] _edgeTo = new int[16];
+    private int[][] _edgeCells = new int[16][];
+    private int _edgeCount;
+    // Incident edges per node (compressed rows): _incident[_incidentStart[n] .. _incidentStart[n+1]).
+    private int[] _incidentStart;
+    private int[] _incident;
+
+    // Dijkstra scratch, per node: distance and the edge it was reached by (or FROM_END / TO_END).
+    private int[] _dist = new int[0];
+    private int[] _via = new int[0];
+    private int[] _stamp = new int[0];
+    private int _gen;
+    private final IntMinHeap _open = new IntMinHeap();
+
+    /**
+     * Builds the graph using the map's cyclic setting.
+     * @param map the maze
+     * @param obsColor obstacle color
+     */
+    public CorridorGraph(Map map, int obsColor) {
+        this(map, obsColor, map.isCyclic());
+    }
+
+    /**
+     * Builds the graph.
+     * @param map the maze
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     */
+    public CorridorGraph(Map map, int obsColor, boolean cyclic) {
+        _width = map.getWidth();
+        _height = map.getHeight();
+        _cyclic = cyclic;
+        _free = map.passable(obsColor).clone();
+        int n = _width * _height;
+        _nodeOf = new int[n];
+        _edgeOf = new int[n];
+        _offset = new int[n];
+        Arrays.fill(_nodeOf, -1);
+        Arrays.fill(_edgeOf, -1);
+
+        int[] nb = new int[4];
+        for (int c = 0; c < n; c++) {
+            if (isFree(c) && neighbors(c, nb) != 2) {
+                addNode(c);
+            }
+        }
+        for (int u = 0; u < _nodeCount; u++) {
+            walkAll(u, nb);
+        }
+        // Whatever is left lies on pure cycles: promote one cell of each to a node.
+        for (int c = 0; c < n; c++) {
+            if (isFree(c) && _nodeOf[c] < 0 && _edgeOf[c] < 0) {
+                walkAll(addNode(c), nb);
+            }
+        }
+        buildIncidence();
+    }
+
+    /**
+     * @return number of nodes (junctions, dead ends, isolated cells and promoted cycle cells)
+     */
+    public int nodeCount() {
+        return _nodeCount;
+    }
+
+    /**
+     * @return number of corridor edges
+     */
+    public int edgeCount() {
+        return _edgeCount;
+    }
+
+    /**
+     * @return the cell of a node
+     */
+    public Pixel2D nodeCell(int node) {
+        return pixel(_nodeCell[node]);
+    }
+
+    /**
+     * @return number of edge ends at a node (a loop counts twice); 1 for a dead end
+     */
+    public int degree(int node) {
+        return _incidentStart[node + 1] - _incidentStart[node];
+    }
+
+    /**
+     * @return the node the edge starts at (offsets count from here)
+     */
+    public int edgeFrom(int edge) {
+        return _edgeFrom[edge];
+    }
+
+    /**
+     * @return the node the edge ends at
+     */
+    public int edgeTo(int edge) {
+        return _edgeTo[edge];
+    }
+
+    /**
+     * @return length of the edge in steps (number of interior cells + 1)
+     */
+    public int edgeLength(int edge) {
+        return _edgeCells[edge].length + 1;
+    }
+
+    /**
+     * @return the interior cells of the edge, in order from its from end
+     */
+    public Pixel2D[] edgeCells(int edge) {
+        int[] cells = _edgeCells[edge];
+        Pixel2D[] out = new Pixel2D[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            out[i] = pixel(cells[i]);
+        }
+        return out;
+    }
+
+    /**
+     * @return the node at p, or -1 if p is not a node
+     */
+    public int nodeAt(Pixel2D p) {
+        int c = cellOf(p);
+        return c < 0 ? -1 : _nodeOf[c];
+    }
+
+    /**
+     * @return the edge whose interior contains p, or -1 if p is a node, an obstacle or outside the map
+     */
+    public int edgeAt(Pixel2D p) {
+        int c = cellOf(p);
+        return c < 0 ? -1 : _edgeOf[c];
+    }
+
+    /**
+     * @return the offset of p on its edge (1 .. edgeLength-1, counted from the edge's from end), or -1
+     */
+    public int offsetAt(Pixel2D p) {
+        int c = cellOf(p);
+        return c < 0 || _edgeOf[c] < 0 ? -1 : _offset[c];
+    }
+
+    /**
+     * @return the shortest-path distance from a to b, or -1 if there is no path
+     */
+    public int dist(Pixel2D a, Pixel2D b) {
+        int s = cellOf(a);
+        int t = cellOf(b);
+        if (s < 0 || t < 0 || !isFree(s) || !isFree(t)) {
+            return -1;
+        }
+        int best = search(s, t);
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    /**
+     * Finds a shortest path from a to b on the compressed graph and expands it into cells.
+     * @return the cells of the path, a first and b last, or null if there is no path
+     */
+    public Pixel2D[] shortestPath(Pixel2D a, Pixel2D b) {
+        int s = cellOf(a);
+        int t = cellOf(b);
+        if (s < 0 || t < 0 || !isFree(s) || !isFree(t)) {
+            return null;
+        }
+        if (s == t) {
+            return new Pixel2D[] {a};
+        }
+        int best = search(s, t);
+        if (best == Integer.MAX_VALUE) {
+            return null;
+        }
+        int[] cells = new int[best + 1];
+        cells[0] = s;
+        if (direct(s, t) == best) {
+            walkEdge(cells, 1, _edgeOf[s], _offset[s], _offset[t]);
+            return toPixels(cells);
+        }
+        // The node t is entered from, and the node sequence back towards s.
+        int exit = bestExit(t);
+        int[] nodes = new int[_nodeCount];
+        int count = 0;
+        for (int u = exit; ; u = other(_via[u], u)) {
+            nodes[count++] = u;
+            if (_via[u] < 0) {
+                break;
+            }
+        }
+        int pos = 1;
+        int first = nodes[count - 1];
+        if (_nodeOf[s] < 0) {
+            int e = _edgeOf[s];
+            pos = walkEdge(cells, pos, e, _offset[s], _via[first] == FROM_END ? 0 : edgeLength(e));
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int e = _via[nodes[i - 1]];
+            boolean forward = _edgeFrom[e] == nodes[i];
+            pos = walkEdge(cells, pos, e, forward ? 0 : edgeLength(e), forward ? edgeLength(e) : 0);
+        }
+        if (_nodeOf[t] < 0) {
+            int e = _edgeOf[t];
+            boolean fromEnd = exit == _edgeFrom[e] && _dist[exit] + _offset[t] == best;
+            walkEdge(cells, pos, e, fromEnd ? 0 : edgeLength(e), _offset[t]);
+        }
+        return toPixels(cells);
+    }
+
+    /**
+     * Dijkstra from the node(s) bounding s until the best way into t is settled.
+     * @return the distance, or Integer.MAX_VALUE if there is none
+     */
+    private int search(int s, int t) {
+        begin();
+        int best = direct(s, t);
+        if (_nodeOf[s] >= 0) {
+            relax(_nodeOf[s], 0, FROM_END);
+        } else {
+            int e = _edgeOf[s];
+            relax(_edgeFrom[e], _offset[s], FROM_END);
+            relax(_edgeTo[e], edgeLength(e) - _offset[s], TO_END);
+        }
+        while (!_open.isEmpty()) {
+            int d = (int) (_open.peekKey() >>> 32);
+            int u = _open.pop();
+            if (_stamp[u] == -_gen) {
+                continue;
+            }
+            if (d >= best) {
+                break;
+            }
+            _stamp[u] = -_gen;
+            int exit = exitCost(u, t);
+            if (exit != Integer.MAX_VALUE) {
+                best = Math.min(best, d + exit);
+            }
+            for (int i = _incidentStart[u]; i < _incidentStart[u + 1]; i++) {
+                int e = _incident[i];
+                relax(other(e, u), d + edgeLength(e), e);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the cost from settled node u into t: 0 if u is t, the offset if t lies on an edge at u, else MAX_VALUE
+     */
+    private int exitCost(int u, int t) {
+        if (_nodeOf[t] >= 0) {
+            return _nodeOf[t] == u ? 0 : Integer.MAX_VALUE;
+        }
+        int e = _edgeOf[t];
+        int cost = Integer.MAX_VALUE;
+        if (_edgeFrom[e] == u) {
+            cost = _offset[t];
+        }
+        if (_edgeTo[e] == u) {
+            cost = Math.min(cost, edgeLength(e) - _offset[t]);
+        }
+        return cost;
+    }
+
+    /**
+     * @return the settled node through which the best path enters t
+     */
+    private int bestExit(int t) {
+        int best = -1;
+        int bestLen = Integer.MAX_VALUE;
+        int[] ends = _nodeOf[t] >= 0 ? new int[] {_nodeOf[t]} : new int[] {_edgeFrom[_edgeOf[t]], _edgeTo[_edgeOf[t]]};
+        for (int u : ends) {
+            if (_stamp[u] == -_gen && exitCost(u, t) != Integer.MAX_VALUE && _dist[u] + exitCost(u, t) < bestLen) {
+                bestLen = _dist[u] + exitCost(u, t);
+                best = u;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the distance between s and t along their common edge without passing a node, or MAX_VALUE
+     */
+    private int direct(int s, int t) {
+        if (s == t) {
+            return 0;
+        }
+        int es = _edgeOf[s];
+        int et = _edgeOf[t];
+        if (es >= 0 && es == et) {
+            return Math.abs(_offset[s] - _offset[t]);
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Appends the cells of edge e from offset 'from' (exclusive) to offset 'to' (inclusive), where
+     * offset 0 is the from node and edgeLength the to node.
+     */
+    private int walkEdge(int[] cells, int pos, int e, int from, int to) {
+        int step = to > from ? 1 : -1;
+        for (int o = from + step; o != to + step; o += step) {
+            cells[pos++] = cellAt(e, o);
+        }
+        return pos;
+    }
+
+    private int cellAt(int e, int offset) {
+        if (offset == 0) {
+            return _nodeCell[_edgeFrom[e]];
+        }
+        if (offset == _edgeCells[e].length + 1) {
+            return _nodeCell[_edgeTo[e]];
+        }
+        return _edgeCells[e][offset - 1];
+    }
+
+    private int other(int e, int u) {
+        return _edgeFrom[e] == u ? _edgeTo[e] : _edgeFrom[e];
+    }
+
+    private void relax(int node, int d, int via) {
+        if (_stamp[node] == -_gen || (_stamp[node] == _gen && _dist[node] <= d)) {
+            return;
+        }
+        _stamp[node] = _gen;
+        _dist[node] = d;
+        _via[node] = via;
+        _open.push((long) d << 32 | node, node);
+    }
+
+    private void begin() {
+        if (_dist.length < _nodeCount) {
+            _dist = new int[_nodeCount];
+            _via = new int[_nodeCount];
+            _stamp = new int[_nodeCount];
+            _gen = 0;
+        }
+        if (++_gen == Integer.MAX_VALUE) {
+            Arrays.fill(_stamp, 0);
+            _gen = 1;
+        }
+        _open.clear();
+    }
+
+    /**
+     * Walks every corridor leaving node u that has not been recorded yet.
+     */
+    private void walkAll(int u, int[] nb) {
+        int start = _nodeCell[u];
+        int k = neighbors(start, nb);
+        int[] first = Arrays.copyOf(nb, k);
+        for (int next : first) {
+            if (_nodeOf[next] >= 0) {
+                // Two adjacent nodes: record the step once, from the lower node id.
+                if (_nodeOf[next] > u) {
+                    addEdge(u, _nodeOf[next], new int[0]);
+                }
+                continue;
+            }
+            if (_edgeOf[next] >= 0) {
+                continue;
+            }
+            int[] cells = new int[16];
+            int len = 0;
+            int prev = start;
+            int cur = next;
+            while (_nodeOf[cur] < 0) {
+                if (len == cells.length) {
+                    cells = Arrays.copyOf(cells, len * 2);
+                }
+                cells[len++] = cur;
+                neighbors(cur, nb);
+                int following = nb[0] == prev ? nb[1] : nb[0];
+                prev = cur;
+                cur = following;
+            }
+            int e = addEdge(u, _nodeOf[cur], Arrays.copyOf(cells, len));
+            for (int i = 0; i < len; i++) {
+                _edgeOf[cells[i]] = e;
+                _offset[cells[i]] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Writes the distinct passable neighbors of cell c (other than c itself) into out.
+     * @return how many there are
+     */
+    private int neighbors(int c, int[] out) {
+        int x = c / _height;
+        int y = c - x * _height;
+        int k = 0;
+        for (int dir = 0; dir < 4; dir++) {
+            int next = GridBfs.neighbor(x, y, dir, _width, _height, _cyclic);
+            if (next < 0 || next == c || !isFree(next)) {
+                continue;
+            }
+            boolean seen = false;
+            for (int i = 0; i < k; i++) {
+                seen |= out[i] == next;
+            }
+            if (!seen) {
+                out[k++] = next;
+            }
+        }
+        return k;
+    }
+
+    private int addNode(int cell) {
+        if (_nodeCount == _nodeCell.length) {
+            _nodeCell = Arrays.copyOf(_nodeCell, _nodeCount * 2);
+        }
+        _nodeOf[cell] = _nodeCount;
+        _nodeCell[_nodeCount] = cell;
+        return _nodeCount++;
+    }
+
+    private int addEdge(int from, int to, int[] cells) {
+        if (_edgeCount == _edgeFrom.length) {
+            _edgeFrom = Arrays.copyOf(_edgeFrom, _edgeCount * 2);
+            _edgeTo = Arrays.copyOf(_edgeTo, _edgeCount * 2);
+            _edgeCells = Arrays.copyOf(_edgeCells, _edgeCount * 2);
+        }
+        _edgeFrom[_edgeCount] = from;
+        _edgeTo[_edgeCount] = to;
+        _edgeCells[_edgeCount] = cells;
+        return _edgeCount++;
+    }
+
+    private void buildIncidence() {
+        _incidentStart = new int[_nodeCount + 1];
+        for (int e = 0; e < _edgeCount; e++) {
+            _incidentStart[_edgeFrom[e] + 1]++;
+            _incidentStart[_edgeTo[e] + 1]++;
+        }
+        for (int u = 0; u < _nodeCount; u++) {
+            _incidentStart[u + 1] += _incidentStart[u];
+        }
+        _incident = new int[_incidentStart[_nodeCount]];
+        int[] fill = Arrays.copyOf(_incidentStart, _nodeCount);
+        for (int e = 0; e < _edgeCount; e++) {
+            _incident[fill[_edgeFrom[e]]++] = e;
+            _incident[fill[_edgeTo[e]]++] = e;
+        }
+    }
+
+    private boolean isFree(int c) {
+        return (_free[c >>> 6] & (1L << c)) != 0;
+    }
+
+    private int cellOf(Pixel2D p) {
+        if (p == null || p.getX() < 0 || p.getY() < 0 || p.getX() >= _width || p.getY() >= _height) {
+            return -1;
+        }
+        return p.getX() * _height + p.getY();
+    }
+
+    private Pixel2D pixel(int c) {
+        return new Index2D(c / _height, c % _height);
+    }
+
+    private Pixel2D[] toPixels(int[] cells) {
+        Pixel2D[] out = new Pixel2D[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            out[i] = pixel(cells[i]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,72 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorridorGraphTest {
+
+    private static final int WALL = 1;
+
+    /** A T-shaped maze: a 1-wide corridor along y = 1 with a branch up at x = 5. */
+    private static Map tee() {
+        Map m = new Map(11, 6, WALL);
+        m.setCyclic(false);
+        m.drawLine(new Index2D(0, 1), new Index2D(10, 1), 0);
+        m.drawLine(new Index2D(5, 1), new Index2D(5, 5), 0);
+        return m;
+    }
+
+    // Verifies junctions and dead ends become nodes and corridors become edges with offsets.
+    @Test
+    void testCompression() {
+        CorridorGraph g = new CorridorGraph(tee(), WALL);
+
+        assertEquals(4, g.nodeCount());
+        assertEquals(3, g.edgeCount());
+        int junction = g.nodeAt(new Index2D(5, 1));
+        assertEquals(3, g.degree(junction));
+        assertEquals(1, g.degree(g.nodeAt(new Index2D(0, 1))));
+
+        int e = g.edgeAt(new Index2D(2, 1));
+        assertEquals(5, g.edgeLength(e));
+        assertEquals(4, g.edgeCells(e).length);
+        assertEquals(new Index2D(2, 1), g.edgeCells(e)[g.offsetAt(new Index2D(2, 1)) - 1]);
+        assertEquals(-1, g.edgeAt(new Index2D(5, 1)));
+        assertEquals(-1, g.nodeAt(new Index2D(0, 0)));
+    }
+
+    // Verifies distances and expanded paths match BFS on the full grid.
+    @Test
+    void testPathsMatchBfs() {
+        Map m = tee();
+        CorridorGraph g = new CorridorGraph(m, WALL);
+        Index2D a = new Index2D(2, 1);
+        Index2D b = new Index2D(5, 4);
+
+        Pixel2D[] path = g.shortestPath(a, b);
+        assertEquals(m.shortestPath(a, b, WALL).length, path.length);
+        assertEquals(a, path[0]);
+        assertEquals(b, path[path.length - 1]);
+        assertEquals(6, g.dist(a, b));
+        assertEquals(2, g.dist(new Index2D(1, 1), new Index2D(3, 1)));
+        assertEquals(-1, g.dist(a, new Index2D(0, 0)));
+        assertNull(g.shortestPath(a, new Index2D(0, 0)));
+    }
+
+    // Verifies a junction-free ring gets one promoted node and wraps correctly on a cyclic map.
+    @Test
+    void testPureCycle() {
+        Map m = new Map(8, 3, WALL);
+        m.drawLine(new Index2D(0, 1), new Index2D(7, 1), 0);
+        CorridorGraph g = new CorridorGraph(m, WALL, true);
+
+        assertEquals(1, g.nodeCount());
+        assertEquals(1, g.edgeCount());
+        int e = 0;
+        assertEquals(g.edgeFrom(e), g.edgeTo(e));
+        assertEquals(8, g.edgeLength(e));
+        assertEquals(2, g.dist(new Index2D(1, 1), new Index2D(7, 1)));
+        assertEquals(3, g.shortestPath(new Index2D(7, 1), new Index2D(1, 1)).length);
+    }
+}
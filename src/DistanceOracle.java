@@ -0,0 +1,248 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Precomputed shortest-path distances between every pair of passable cells of a Map, for
+ * levels whose walls never change. Building runs one BFS per passable cell, spread over the
+ * common fork-join pool; afterwards dist and nextStep are table lookups.
+ * Distances are stored as one byte per (from, to) pair of passable cells: 0..253 directly,
+ * UNREACHABLE for no path, and OVERFLOW for the rare distances of 254 or more, which are kept
+ * in a sorted side table (found by binary search). A 22x22 board needs at most 484*484 bytes.
+ * The oracle is a snapshot: later changes to the map are not seen, so build a new one when walls move.
+ */
+public final class DistanceOracle {
+    private static final int UNREACHABLE = 255;
+    private static final int OVERFLOW = 254;
+    private static final int ROWS_PER_TASK = 8;
+
+    private final int _width;
+    private final int _height;
+    private final boolean _cyclic;
+    private final int[] _slot;
+    private final int _count;
+    private final byte[] _table;
+    private final long[] _overflowKeys;
+    private final int[] _overflowDist;
+
+    /**
+     * Builds the oracle using the map's cyclic setting.
+     * @param map the level
+     * @param obsColor obstacle color
+     */
+    public DistanceOracle(Map map, int obsColor) {
+        this(map, obsColor, map.isCyclic());
+    }
+
+    /**
+     * Builds the oracle.
+     * @param map the level
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     */
+    public DistanceOracle(Map map, int obsColor, boolean cyclic) {
+        _width = map.getWidth();
+        _height = map.getHeight();
+        _cyclic = cyclic;
+        int n = map.size();
+        _slot = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            _slot[i] = map.getPixelAt(i) == obsColor ? -1 : count++;
+        }
+        _count = count;
+        if ((long) count * count > Integer.MAX_VALUE - 8) {
+            throw new RuntimeException("Too many passable cells for a distance oracle: " + count);
+        }
+        _table = new byte[count * count];
+
+        int[] cells = new int[count];
+        for (int i = 0; i < n; i++) {
+            if (_slot[i] >= 0) {
+                cells[_slot[i]] = i;
+            }
+        }
+        long[][] overflow = new long[count][];
+        long[] free = map.passable(obsColor);
+        ForkJoinPool.commonPool().invoke(new Rows(free, cells, overflow, 0, count));
+
+        int total = 0;
+        for (long[] row : overflow) {
+            total += row == null ? 0 : row.length;
+        }
+        _overflowKeys = new long[total];
+        _overflowDist = new int[total];
+        int k = 0;
+        for (long[] row : overflow) {
+            if (row != null) {
+                for (long e : row) {
+                    // Rows are in slot order and each row in target order, so the keys come out sorted.
+                    _overflowKeys[k] = e >>> 32;
+                    _overflowDist[k++] = (int) e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the shortest-path distance from a to b, or -1 if there is no path
+     * (or either point is an obstacle or outside the map)
+     */
+    public int dist(Pixel2D a, Pixel2D b) {
+        if (a == null || b == null) {
+            return -1;
+        }
+        return dist(a.getX(), a.getY(), b.getX(), b.getY());
+    }
+
+    /**
+     * @return the shortest-path distance from (x1, y1) to (x2, y2), or -1 if there is no path
+     */
+    public int dist(int x1, int y1, int x2, int y2) {
+        int a = slot(x1, y1);
+        int b = slot(x2, y2);
+        if (a < 0 || b < 0) {
+            return -1;
+        }
+        return lookup(a, b);
+    }
+
+    /**
+     * Returns the first step of a shortest path from one point to another: the neighbor of
+     * from that is one step closer to to (neighbors are tried right, left, up, down).
+     * @return the next cell, or null if from == to or there is no path
+     */
+    public Pixel2D nextStep(Pixel2D from, Pixel2D to) {
+        if (from == null || to == null) {
+            return null;
+        }
+        int a = slot(from.getX(), from.getY());
+        int b = slot(to.getX(), to.getY());
+        if (a < 0 || b < 0) {
+            return null;
+        }
+        int d = lookup(a, b);
+        if (d <= 0) {
+            return null;
+        }
+        for (int k = 0; k < 4; k++) {
+            int next = GridBfs.neighbor(from.getX(), from.getY(), k, _width, _height, _cyclic);
+            if (next >= 0 && _slot[next] >= 0 && lookup(_slot[next], b) == d - 1) {
+                return new Index2D(next / _height, next % _height);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the distances from one point to every cell, the same map Map.allDistance gives.
+     * @param start start point
+     * @return distance map (-1 for obstacles and unreachable cells), or null if start is not passable
+     */
+    public Map2D distances(Pixel2D start) {
+        int a = start == null ? -1 : slot(start.getX(), start.getY());
+        if (a < 0) {
+            return null;
+        }
+        Map out = new Map(_width, _height, -1);
+        for (int i = 0; i < _slot.length; i++) {
+            if (_slot[i] >= 0) {
+                out.setPixelAt(i, lookup(a, _slot[i]));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return number of passable cells the table covers
+     */
+    public int cellCount() {
+        return _count;
+    }
+
+    /**
+     * @return bytes used by the distance tables
+     */
+    public long tableBytes() {
+        return _table.length + 4L * _slot.length + 12L * _overflowKeys.length;
+    }
+
+    private int slot(int x, int y) {
+        if (x < 0 || y < 0 || x >= _width || y >= _height) {
+            return -1;
+        }
+        return _slot[x * _height + y];
+    }
+
+    private int lookup(int a, int b) {
+        int v = _table[a * _count + b] & 0xFF;
+        if (v == UNREACHABLE) {
+            return -1;
+        }
+        if (v == OVERFLOW) {
+            return _overflowDist[Arrays.binarySearch(_overflowKeys, (long) a * _count + b)];
+        }
+        return v;
+    }
+
+    /**
+     * Fills the table rows of a range of source slots, splitting the range over the pool.
+     */
+    @SuppressWarnings("serial")
+    private final class Rows extends RecursiveAction {
+        private final long[] _free;
+        private final int[] _cells;
+        private final long[][] _overflow;
+        private final int _from;
+        private final int _to;
+
+        Rows(long[] free, int[] cells, long[][] overflow, int from, int to) {
+            _free = free;
+            _cells = cells;
+            _overflow = overflow;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (_to - _from > ROWS_PER_TASK) {
+                int mid = (_from + _to) >>> 1;
+                invokeAll(new Rows(_free, _cells, _overflow, _from, mid), new Rows(_free, _cells, _overflow, mid, _to));
+                return;
+            }
+            int[] dist = new int[_slot.length];
+            GridBfs bfs = GridBfs.get();
+            for (int a = _from; a < _to; a++) {
+                bfs.distances(_free, _width, _height, _cyclic, _cells[a], dist);
+                int base = a * _count;
+                int big = 0;
+                for (int b = 0; b < _count; b++) {
+                    int d = dist[_cells[b]];
+                    if (d < 0) {
+                        _table[base + b] = (byte) UNREACHABLE;
+                    } else if (d >= OVERFLOW) {
+                        _table[base + b] = (byte) OVERFLOW;
+                        big++;
+                    } else {
+                        _table[base + b] = (byte) d;
+                    }
+                }
+                if (big > 0) {
+                    // Packed as key (a * count + b) in the high half, distance in the low half.
+                    long[] row = new long[big];
+                    int k = 0;
+                    for (int b = 0; b < _count; b++) {
+                        int d = dist[_cells[b]];
+                        if (d >= OVERFLOW) {
+                            row[k++] = ((long) base + b) << 32 | d;
+                        }
+                    }
+                    _overflow[a] = row;
+                }
+            }
+        }
+    }
+}
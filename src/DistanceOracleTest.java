@@ -0,0 +1,74 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceOracleTest {
+
+    private static final int WALL = 1;
+
+    private static Map level(boolean cyclic) {
+        Map m = new Map(22, 22, 0);
+        m.setCyclic(cyclic);
+        m.drawRect(new Index2D(3, 3), new Index2D(8, 18), WALL);
+        m.drawLine(new Index2D(12, 0), new Index2D(12, 15), WALL);
+        m.drawRect(new Index2D(15, 15), new Index2D(21, 16), WALL);
+        return m;
+    }
+
+    // Verifies every lookup equals a fresh allDistance, in both cyclic modes.
+    @Test
+    void testDistancesMatchAllDistance() {
+        for (boolean cyclic : new boolean[] {false, true}) {
+            Map m = level(cyclic);
+            DistanceOracle oracle = new DistanceOracle(m, WALL);
+            for (int x = 0; x < 22; x += 3) {
+                for (int y = 0; y < 22; y += 2) {
+                    Index2D a = new Index2D(x, y);
+                    Map2D ref = m.allDistance(a, WALL, cyclic);
+                    for (int bx = 0; bx < 22; bx++) {
+                        for (int by = 0; by < 22; by++) {
+                            int expected = m.getPixel(a) == WALL ? -1 : ref.getPixel(bx, by);
+                            assertEquals(expected, oracle.dist(x, y, bx, by));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Verifies nextStep walks a shortest path and the table for a 22x22 level stays small.
+    @Test
+    void testNextStepAndSize() {
+        Map m = level(true);
+        DistanceOracle oracle = new DistanceOracle(m, WALL);
+        assertTrue(oracle.tableBytes() < 1 << 20);
+
+        Pixel2D cur = new Index2D(0, 0);
+        Pixel2D goal = new Index2D(20, 20);
+        int d = oracle.dist(cur, goal);
+        for (int i = 0; i < d; i++) {
+            cur = oracle.nextStep(cur, goal);
+            assertEquals(d - i - 1, oracle.dist(cur, goal));
+        }
+        assertEquals(goal, cur);
+        assertNull(oracle.nextStep(goal, goal));
+        assertEquals(-1, oracle.dist(new Index2D(5, 5), goal));
+        assertNull(oracle.distances(new Index2D(3, 3)));
+    }
+
+    // Verifies distances of 254 and more go through the overflow table.
+    @Test
+    void testLongDistancesOverflow() {
+        Map m = new Map(300, 3, 0);
+        m.setCyclic(false);
+        m.drawLine(new Index2D(0, 1), new Index2D(298, 1), WALL);
+        DistanceOracle oracle = new DistanceOracle(m, WALL);
+
+        assertEquals(299, oracle.dist(0, 0, 299, 0));
+        assertEquals(299 + 299 + 2, oracle.dist(0, 0, 0, 2));
+        assertEquals(oracle.dist(0, 0, 0, 2), oracle.dist(0, 2, 0, 0));
+        assertEquals(m.allDistance(new Index2D(0, 2), WALL), oracle.distances(new Index2D(0, 2)));
+    }
+}
@@ -22,6 +22,10 @@ public class Ex3Algo implements PacManAlgo {
     private int lastX = -1, lastY = -1;
     private int stuckCounter = 0;
     private Random rand = new Random();
+    // Flood-fill bitboard for the current move (see countReachableTilesCyclic).
+    private BitboardBfs reach;
+    private int[][] reachBoard;
+    private ArrayList<int[]> reachGhosts;
 
     @Override
     public String getInfo() {
@@ -38,6 +42,7 @@ public class Ex3Algo implements PacManAlgo {
         String pos = game.getPos(0);
 
         if (board == null || pos == null) return Game.STAY;
+        reach = null;
 
         int[] p = pos(pos);
         int pX = p[0];
@@ -172,37 +177,24 @@ public class Ex3Algo implements PacManAlgo {
     /**
      * Counts reachable tiles using BFS (Flood Fill).
      * Handles cyclic borders and treats ghosts as walls.
+     * Runs on a bitboard of the free, ghost-safe cells, built once per board and ghost list.
      */
     private int countReachableTilesCyclic(int[][] board, int startX, int startY, ArrayList<int[]> ghosts, int limit) {
-        int w = board.length;
-        int h = board[0].length;
-        boolean[][] visited = new boolean[w][h];
-        Queue<int[]> q = new LinkedList<>();
-
-        q.add(new int[]{startX, startY});
-        visited[startX][startY] = true;
-
-        int count = 0;
-        while(!q.isEmpty() && count < limit) {
-            int[] curr = q.poll();
-            count++;
-
-            int[] dx = {0, 1, 0, -1};
-            int[] dy = {1, 0, -1, 0};
-
-            for(int i=0; i<4; i++) {
-                int nx = (curr[0] + dx[i] + w) % w;
-                int ny = (curr[1] + dy[i] + h) % h;
-
-                if (!visited[nx][ny] && board[nx][ny] != WALL) {
-                    if (isSafeFromGhostsCyclic(nx, ny, ghosts, w, h)) {
-                        visited[nx][ny] = true;
-                        q.add(new int[]{nx, ny});
+        if (reach == null || reachBoard != board || reachGhosts != ghosts) {
+            int w = board.length;
+            int h = board[0].length;
+            reach = new BitboardBfs(w, h, true);
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    if (board[x][y] != WALL && isSafeFromGhostsCyclic(x, y, ghosts, w, h)) {
+                        reach.setFree(x, y, true);
                     }
                 }
             }
+            reachBoard = board;
+            reachGhosts = ghosts;
         }
-        return count;
+        return reach.floodCount(startX, startY, limit);
     }
 
     /**
@@ -0,0 +1,128 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * A* search on a 4-connected, unit-cost grid, used by Map.shortestPath (PathEngine.ASTAR).
+ * The heuristic is the Manhattan distance, taking the shorter way around each axis when the
+ * map is cyclic: min(dx, w-dx) + min(dy, h-dy) (the same formula as Ex3Algo.cyclicDist).
+ * It never overestimates and is consistent, so the first time the target is taken off the
+ * open list its path is a shortest one.
+ * The open list is an IntMinHeap of cells; keys order by f-cost and then prefer the larger
+ * g-cost (closer to the target). Stale heap entries are skipped when popped.
+ * Like GridBfs, scratch arrays are generation stamped and kept per thread.
+ */
+final class GridAStar {
+    private static final ThreadLocal<GridAStar> LOCAL = ThreadLocal.withInitial(GridAStar::new);
+
+    private int[] _g = new int[0];
+    private int[] _parent = new int[0];
+    private int[] _stamp = new int[0];
+    private int[] _closed = new int[0];
+    private int _gen;
+    private final IntMinHeap _open = new IntMinHeap();
+    private int _expanded;
+
+    private GridAStar() {
+    }
+
+    /**
+     * @return the calling thread's engine
+     */
+    static GridAStar get() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Runs A* from source to target over passable cells.
+     * Afterwards parent(i) gives the predecessor of each cell on the found path.
+     * @param free passability bitset (bit i set iff cell i may be entered)
+     * @return true iff target was reached
+     */
+    boolean search(long[] free, int w, int h, boolean cyclic, int source, int target) {
+        begin(w * h);
+        int tx = target / h;
+        int ty = target - tx * h;
+        open(source, 0, source, heuristic(source / h, source % h, tx, ty, w, h, cyclic));
+        while (!_open.isEmpty()) {
+            long key = _open.peekKey();
+            int cur = _open.pop();
+            if (_closed[cur] == _gen) {
+                continue;
+            }
+            _closed[cur] = _gen;
+            _expanded++;
+            if (cur == target) {
+                return true;
+            }
+            int g = (int) (Integer.MAX_VALUE - (key & 0xFFFFFFFFL)) + 1;
+            int cx = cur / h;
+            int cy = cur - cx * h;
+            for (int k = 0; k < 4; k++) {
+                int next = GridBfs.neighbor(cx, cy, k, w, h, cyclic);
+                if (next < 0 || _closed[next] == _gen || (free[next >>> 6] & (1L << next)) == 0) {
+                    continue;
+                }
+                if (_stamp[next] != _gen || g < _g[next]) {
+                    int nx = next / h;
+                    open(next, g, cur, heuristic(nx, next - nx * h, tx, ty, w, h, cyclic));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the predecessor of a cell on the path found by the last search (the source is its own parent)
+     */
+    int parent(int i) {
+        return _parent[i];
+    }
+
+    /**
+     * @return number of cells expanded (taken off the open list) by the last search
+     */
+    int expanded() {
+        return _expanded;
+    }
+
+    /**
+     * The torus-aware Manhattan distance between (x1, y1) and (x2, y2).
+     */
+    static int heuristic(int x1, int y1, int x2, int y2, int w, int h, boolean cyclic) {
+        int dx = Math.abs(x1 - x2);
+        int dy = Math.abs(y1 - y2);
+        if (cyclic) {
+            dx = Math.min(dx, w - dx);
+            dy = Math.min(dy, h - dy);
+        }
+        return dx + dy;
+    }
+
+    private void begin(int n) {
+        if (_g.length < n) {
+            _g = new int[n];
+            _parent = new int[n];
+            _stamp = new int[n];
+            _closed = new int[n];
+            _gen = 0;
+        }
+        if (++_gen == Integer.MAX_VALUE) {
+            Arrays.fill(_stamp, 0);
+            Arrays.fill(_closed, 0);
+            _gen = 1;
+        }
+        _open.clear();
+        _expanded = 0;
+    }
+
+    /**
+     * Records g and parent for a cell and pushes it with key (f, larger g first).
+     */
+    private void open(int cell, int g, int parent, int h) {
+        _stamp[cell] = _gen;
+        _g[cell] = g;
+        _parent[cell] = parent;
+        _open.push(((long) (g + h) << 32) | (Integer.MAX_VALUE - g), cell);
+    }
+}
@@ -0,0 +1,446 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The breadth-first search engine behind Map's fill, shortestPath and allDistance.
+ * Cells are packed linear indices (x * height + y), the queue is a primitive int array,
+ * and "visited" is a generation stamp per cell, so starting a new search costs O(1)
+ * instead of clearing a visited array. Scratch arrays are kept per thread (see get())
+ * and only grow, so repeated searches on the same map allocate nothing.
+ * An engine is not reentrant: finish using one search's results before starting the next.
+ */
+final class GridBfs {
+    private static final ThreadLocal<GridBfs> LOCAL = ThreadLocal.withInitial(GridBfs::new);
+
+    private int _w;
+    private int _h;
+    private boolean _cyclic;
+    private int[] _queue = new int[0];
+    private int _head;
+    private int _tail;
+    private int[] _stamp = new int[0];
+    private int _gen;
+    private int[] _parent = new int[0];
+    // Second search direction, used by the bidirectional search.
+    private int[] _queueB = new int[0];
+    private int _headB;
+    private int _tailB;
+    private int[] _stampB = new int[0];
+    private int[] _parentB = new int[0];
+    private int[] _distF = new int[0];
+    private int[] _distB = new int[0];
+
+    private GridBfs() {
+    }
+
+    /**
+     * @return the calling thread's engine
+     */
+    static GridBfs get() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Recolors the 4-connected component of start (all cells equal to data[start]) to newV.
+     * The new color doubles as the visited mark. The caller must make sure data[start] != newV.
+     * Every recolored cell is left in the queue, in visiting order (see queued()).
+     * @param data cells of a w*h map
+     * @param start start index
+     * @param newV new color
+     * @return number of recolored cells
+     */
+    int fill(int[] data, int w, int h, boolean cyclic, int start, int newV) {
+        begin(w, h, cyclic, false);
+        int oldV = data[start];
+        data[start] = newV;
+        push(start);
+        while (_head < _tail) {
+            int cur = _queue[_head++];
+            int cx = cur / _h;
+            int cy = cur - cx * _h;
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k);
+                if (next >= 0 && data[next] == oldV) {
+                    data[next] = newV;
+                    push(next);
+                }
+            }
+        }
+        return _tail;
+    }
+
+    /**
+     * Runs a BFS over passable cells from source until target is reached.
+     * Afterwards parent(i) gives the predecessor of each reached cell on a shortest path.
+     * @param free passability bitset (bit i set iff cell i may be entered)
+     * @return true iff target was reached
+     */
+    boolean search(long[] free, int w, int h, boolean cyclic, int source, int target) {
+        begin(w, h, cyclic, true);
+        visit(source, source);
+        while (_head < _tail) {
+            int cur = _queue[_head++];
+            if (cur == target) {
+                return true;
+            }
+            int cx = cur / _h;
+            int cy = cur - cx * _h;
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k);
+                if (next >= 0 && _stamp[next] != _gen && (free[next >>> 6] & (1L << next)) != 0) {
+                    visit(next, cur);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs a bidirectional BFS: one frontier grows from source, one from target, a whole layer
+     * at a time (always the smaller frontier), until they touch. Once a layer produces a meeting,
+     * the best meeting in that layer lies on a shortest path, so the result has the same length
+     * as a one-sided BFS. Afterwards parent(i) leads from the meeting cell back to source and
+     * parentB(i) leads from it to target.
+     * @param free passability bitset (bit i set iff cell i may be entered)
+     * @return the meeting cell, or -1 if target cannot be reached
+     */
+    int searchBidirectional(long[] free, int w, int h, boolean cyclic, int source, int target) {
+        begin(w, h, cyclic, true);
+        int n = w * h;
+        if (_stampB.length < n) {
+            _queueB = new int[n];
+            _stampB = new int[n];
+            _parentB = new int[n];
+            _distF = new int[n];
+            _distB = new int[n];
+        }
+        _headB = 0;
+        _tailB = 0;
+        visit(source, source);
+        _distF[source] = 0;
+        if (source == target) {
+            return source;
+        }
+        _stampB[target] = _gen;
+        _parentB[target] = target;
+        _distB[target] = 0;
+        _queueB[_tailB++] = target;
+
+        while (_head < _tail && _headB < _tailB) {
+            int meet;
+            if (_tail - _head <= _tailB - _headB) {
+                meet = expandForward(free);
+            } else {
+                meet = expandBackward(free);
+            }
+            if (meet >= 0) {
+                return meet;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the successor (towards target) of a cell reached by the backward half of the last bidirectional search
+     */
+    int parentB(int i) {
+        return _parentB[i];
+    }
+
+    /**
+     * Expands one whole layer of the forward frontier.
+     * @return the best meeting cell found in the layer, or -1
+     */
+    private int expandForward(long[] free) {
+        int end = _tail;
+        int best = -1;
+        int bestLen = Integer.MAX_VALUE;
+        while (_head < end) {
+            int cur = _queue[_head++];
+            int cx = cur / _h;
+            int cy = cur - cx * _h;
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k);
+                if (next >= 0 && _stamp[next] != _gen && (free[next >>> 6] & (1L << next)) != 0) {
+                    visit(next, cur);
+                    _distF[next] = _distF[cur] + 1;
+                    if (_stampB[next] == _gen && _distF[next] + _distB[next] < bestLen) {
+                        bestLen = _distF[next] + _distB[next];
+                        best = next;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Expands one whole layer of the backward frontier.
+     * @return the best meeting cell found in the layer, or -1
+     */
+    private int expandBackward(long[] free) {
+        int end = _tailB;
+        int best = -1;
+        int bestLen = Integer.MAX_VALUE;
+        while (_headB < end) {
+            int cur = _queueB[_headB++];
+            int cx = cur / _h;
+            int cy = cur - cx * _h;
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k);
+                if (next >= 0 && _stampB[next] != _gen && (free[next >>> 6] & (1L << next)) != 0) {
+                    _stampB[next] = _gen;
+                    _parentB[next] = cur;
+                    _distB[next] = _distB[cur] + 1;
+                    _queueB[_tailB++] = next;
+                    if (_stamp[next] == _gen && _distF[next] + _distB[next] < bestLen) {
+                        bestLen = _distF[next] + _distB[next];
+                        best = next;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the BFS distance from source to every cell into dist; unreachable cells get -1.
+     * dist is the output and the visited mark at once, so no stamps are used.
+     * @param free passability bitset (bit i set iff cell i may be entered)
+     * @param dist output, at least w*h long
+     */
+    void distances(long[] free, int w, int h, boolean cyclic, int source, int[] dist) {
+        begin(w, h, cyclic, false);
+        Arrays.fill(dist, 0, w * h, -1);
+        dist[source] = 0;
+        push(source);
+        while (_head < _tail) {
+            int cur = _queue[_head++];
+            int cx = cur / _h;
+            int cy = cur - cx * _h;
+            int nd = dist[cur] + 1;
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k);
+                if (next >= 0 && dist[next] == -1 && (free[next >>> 6] & (1L << next)) != 0) {
+                    dist[next] = nd;
+                    push(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Multi-source version of distances: one BFS seeded with every source at distance 0.
+     * Each cell gets the distance to its nearest source; unreachable cells get -1.
+     * If owner is not null, owner[i] receives the position in sources of the nearest source
+     * (-1 if unreachable). Ties go to the source whose wave arrives first; sources are queued in array order.
+     * @param free passability bitset (bit i set iff cell i may be entered)
+     * @param sources source cells (all passable)
+     * @param count number of entries of sources to use
+     * @param dist output, at least w*h long
+     * @param owner output or null, at least w*h long
+     */
+    void distances(long[] free, int w, int h, boolean cyclic, int[] sources, int count, int[] dist, int[] owner) {
+        begin(w, h, cyclic, false);
+        Arrays.fill(dist, 0, w * h, -1);
+        if (owner != null) {
+            Arrays.fill(owner, 0, w * h, -1);
+        }
+        for (int s = 0; s < count; s++) {
+            int source = sources[s];
+            if (dist[source] != 0) {
+                dist[source] = 0;
+                if (owner != null) {
+                    owner[source] = s;
+                }
+                push(source);
+            }
+        }
+        while (_head < _tail) {
+            int cur = _queue[_head++];
+            int cx = cur / _h;
+            int cy = cur - cx * _h;
+            int nd = dist[cur] + 1;
+            for (int k = 0; k < 4; k++) {
+                int next = neighbor(cx, cy, k);
+                if (next >= 0 && dist[next] == -1 && (free[next >>> 6] & (1L << next)) != 0) {
+                    dist[next] = nd;
+                    if (owner != null) {
+                        owner[next] = owner[cur];
+                    }
+                    push(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the k nearest cells whose value matches, in one BFS from source that stops as soon
+     * as k are found (or the search passes maxDist). The source itself is never a result.
+     * Results come in BFS order: by distance, ties in discovery order (neighbors right, left, up, down).
+     * @param data cells of the map
+     * @param free passability bitset (bit i set iff cell i may be entered)
+     * @param match which cell values count as targets
+     * @param k most results wanted (cells, dist and first must hold k entries)
+     * @param maxDist largest distance to search
+     * @param cells output: target cells
+     * @param dist output: their distances
+     * @param first output: the first step from source towards each target
+     * @return number of results written
+     */
+    int nearest(int[] data, long[] free, int w, int h, boolean cyclic, int source, IntPredicate match,
+                int k, int maxDist, int[] cells, int[] dist, int[] first) {
+        begin(w, h, cyclic, true);
+        if (k <= 0 || maxDist <= 0) {
+            return 0;
+        }
+        visit(source, source);
+        int found = 0;
+        int depth = 0;
+        int levelEnd = _tail;
+        while (_head < _tail) {
+            if (_head == levelEnd) {
+                if (++depth == maxDist) {
+                    break;
+                }
+                levelEnd = _tail;
+            }
+            int cur = _queue[_head++];
+            int cx = cur / _h;
+            int cy = cur - cx * _h;
+            for (int j = 0; j < 4; j++) {
+                int next = neighbor(cx, cy, j);
+                if (next >= 0 && _stamp[next] != _gen && (free[next >>> 6] & (1L << next)) != 0) {
+                    // parent() holds the first step here: the cell itself next to the source, else inherited.
+                    visit(next, cur == source ? next : _parent[cur]);
+                    if (match.test(data[next])) {
+                        cells[found] = next;
+                        dist[found] = depth + 1;
+                        first[found] = _parent[next];
+                        if (++found == k) {
+                            return found;
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the predecessor of a cell reached by the last search (the source is its own parent)
+     */
+    int parent(int i) {
+        return _parent[i];
+    }
+
+    /**
+     * @return true iff cell i was reached by the last search
+     */
+    boolean visited(int i) {
+        return _stamp[i] == _gen;
+    }
+
+    /**
+     * @return number of cells queued by the last search (both directions for a bidirectional search)
+     */
+    int queued() {
+        return _tail + _tailB;
+    }
+
+    /**
+     * @return the i-th cell queued by the last search
+     */
+    int queuedAt(int i) {
+        return _queue[i];
+    }
+
+    /**
+     * Returns the linear index of the k-th neighbor of (x, y), in the order
+     * right, left, up, down (x+1, x-1, y+1, y-1).
+     * @return neighbor index, or -1 if it falls outside a non-cyclic map
+     */
+    int neighbor(int x, int y, int k) {
+        return neighbor(x, y, k, _w, _h, _cyclic);
+    }
+
+    /**
+     * The k-th neighbor of (x, y) on a w*h map, in the same order as neighbor(x, y, k).
+     * @return neighbor index, or -1 if it falls outside a non-cyclic map
+     */
+    static int neighbor(int x, int y, int k, int w, int h, boolean cyclic) {
+        switch (k) {
+            case 0:
+                x++;
+                if (x >= w) {
+                    if (!cyclic) return -1;
+                    x = 0;
+                }
+                break;
+            case 1:
+                x--;
+                if (x < 0) {
+                    if (!cyclic) return -1;
+                    x = w - 1;
+                }
+                break;
+            case 2:
+                y++;
+                if (y >= h) {
+                    if (!cyclic) return -1;
+                    y = 0;
+                }
+                break;
+            default:
+                y--;
+                if (y < 0) {
+                    if (!cyclic) return -1;
+                    y = h - 1;
+                }
+                break;
+        }
+        return x * h + y;
+    }
+
+    /**
+     * Prepares the scratch arrays for a w*h search and starts a new generation.
+     */
+    private void begin(int w, int h, boolean cyclic, boolean stamped) {
+        _w = w;
+        _h = h;
+        _cyclic = cyclic;
+        _head = 0;
+        _tail = 0;
+        _tailB = 0;
+        int n = w * h;
+        if (_queue.length < n) {
+            _queue = new int[n];
+        }
+        if (stamped) {
+            if (_stamp.length < n) {
+                _stamp = new int[n];
+                _parent = new int[n];
+                // The backward side shares the generation count: old stamps must not match the restarted count.
+                Arrays.fill(_stampB, 0);
+                _gen = 0;
+            }
+            if (++_gen == Integer.MAX_VALUE) {
+                Arrays.fill(_stamp, 0);
+                Arrays.fill(_stampB, 0);
+                _gen = 1;
+            }
+        }
+    }
+
+    private void push(int i) {
+        _queue[_tail++] = i;
+    }
+
+    private void visit(int i, int from) {
+        _stamp[i] = _gen;
+        _parent[i] = from;
+        push(i);
+    }
+}
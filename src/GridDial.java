@@ -0,0 +1,116 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * Shortest paths with small non-negative integer cell costs, used by Map.weightedPath.
+ * Dial's algorithm: pending cells sit in a ring of maxCost+1 FIFO buckets indexed by
+ * distance modulo the ring size, so the search takes O(cells + largest distance) and no heap.
+ * With costs 0 and 1 only it behaves like a 0-1 BFS. Entering a cell costs that cell's cost; a
+ * negative cost makes the cell impassable. Scratch arrays are generation stamped and kept per thread.
+ */
+final class GridDial {
+    /** Largest supported cell cost (the bucket ring has one queue per possible cost). Path costs must also fit in an int. */
+    static final int MAX_COST = 1 << 16;
+    private static final ThreadLocal<GridDial> LOCAL = ThreadLocal.withInitial(GridDial::new);
+
+    private int[] _dist = new int[0];
+    private int[] _parent = new int[0];
+    private int[] _stamp = new int[0];
+    private int _gen;
+    private IntQueue[] _buckets = new IntQueue[0];
+
+    private GridDial() {
+    }
+
+    /**
+     * @return the calling thread's engine
+     */
+    static GridDial get() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Finds the cheapest path from source to target.
+     * Afterwards parent(i) gives the predecessor of each cell on the found path.
+     * @param cost cost of entering each cell, negative for impassable
+     * @param maxCost largest value in cost (at most MAX_COST)
+     * @return the total cost of the cheapest path, or -1 if target cannot be reached
+     * @throws RuntimeException if a path cost reached during the search does not fit in an int
+     */
+    int search(int[] cost, int maxCost, int w, int h, boolean cyclic, int source, int target) {
+        begin(w * h, maxCost + 1);
+        int ring = maxCost + 1;
+        _stamp[source] = _gen;
+        _dist[source] = 0;
+        _parent[source] = source;
+        _buckets[0].add(source);
+        int pending = 1;
+        for (int d = 0; pending > 0; d++) {
+            IntQueue bucket = _buckets[d % ring];
+            while (!bucket.isEmpty()) {
+                int cur = bucket.remove();
+                pending--;
+                if (_stamp[cur] != _gen || _dist[cur] != d) {
+                    continue;
+                }
+                if (cur == target) {
+                    return d;
+                }
+                // Settled: a negated stamp keeps later (stale) entries from expanding it again.
+                _stamp[cur] = -_gen;
+                int cx = cur / h;
+                int cy = cur - cx * h;
+                for (int k = 0; k < 4; k++) {
+                    int next = GridBfs.neighbor(cx, cy, k, w, h, cyclic);
+                    if (next < 0 || cost[next] < 0 || _stamp[next] == -_gen) {
+                        continue;
+                    }
+                    long sum = (long) d + cost[next];
+                    if (sum > Integer.MAX_VALUE) {
+                        throw new RuntimeException("path cost exceeds " + Integer.MAX_VALUE);
+                    }
+                    int nd = (int) sum;
+                    if (_stamp[next] != _gen || nd < _dist[next]) {
+                        _stamp[next] = _gen;
+                        _dist[next] = nd;
+                        _parent[next] = cur;
+                        _buckets[nd % ring].add(next);
+                        pending++;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the predecessor of a cell on the path found by the last search (the source is its own parent)
+     */
+    int parent(int i) {
+        return _parent[i];
+    }
+
+    private void begin(int n, int ring) {
+        if (_dist.length < n) {
+            _dist = new int[n];
+            _parent = new int[n];
+            _stamp = new int[n];
+            _gen = 0;
+        }
+        if (++_gen == Integer.MAX_VALUE) {
+            Arrays.fill(_stamp, 0);
+            _gen = 1;
+        }
+        if (_buckets.length < ring) {
+            IntQueue[] grown = Arrays.copyOf(_buckets, ring);
+            for (int i = _buckets.length; i < ring; i++) {
+                grown[i] = new IntQueue(16);
+            }
+            _buckets = grown;
+        }
+        for (int i = 0; i < ring; i++) {
+            _buckets[i].clear();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * Jump Point Search on a 4-connected, unit-cost grid, used by Map.shortestPath (PathEngine.JPS).
+ * Among equally short paths only "canonical" ones are followed: a path turns from a vertical
+ * into a horizontal move only where it must (a forced neighbor), so
+ * <ul>
+ * <li>after a horizontal move the natural successors are straight on and both vertical directions;</li>
+ * <li>after a vertical move only straight on, plus a horizontal direction (x+dx, y) when that cell is
+ * free but (x+dx, y-dy) is blocked - otherwise the path could have turned one row earlier.</li>
+ * </ul>
+ * A vertical jump stops at the target or at a cell with a forced neighbor; a horizontal jump stops at
+ * the target or at a cell from which a vertical jump succeeds. Everything in between is skipped, and
+ * A* (same heuristic as GridAStar) runs over the jump points only.
+ * Columns are contiguous in the passability bitset, so vertical jumps test 64 cells per step with
+ * word operations. On a cyclic map jumps wrap around and stop after w-1 (h-1) steps.
+ * Search states are (cell, arrival direction) pairs. Scratch arrays are generation stamped (a negated
+ * stamp marks a closed state) and kept per thread.
+ */
+final class GridJps {
+    private static final ThreadLocal<GridJps> LOCAL = ThreadLocal.withInitial(GridJps::new);
+
+    private long[] _free;
+    private int _w;
+    private int _h;
+    private boolean _cyclic;
+    private int _target;
+    private int _tx;
+    private int _ty;
+    private int _steps;
+    private int[] _g = new int[0];
+    private int[] _parent = new int[0];
+    private int[] _stamp = new int[0];
+    private int _gen;
+    private final IntMinHeap _open = new IntMinHeap();
+    private int _expanded;
+
+    private GridJps() {
+    }
+
+    /**
+     * @return the calling thread's engine
+     */
+    static GridJps get() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Finds a shortest path from source to target over passable cells.
+     * @param free passability bitset (bit i set iff cell i may be entered)
+     * @return the cells of the path, source first and target last, or null if target cannot be reached
+     */
+    int[] search(long[] free, int w, int h, boolean cyclic, int source, int target) {
+        begin(free, w, h, cyclic, target);
+        if (source == target) {
+            return new int[] {source};
+        }
+        int sx = source / h;
+        int sy = source - sx * h;
+        for (int dir = 0; dir < 4; dir++) {
+            relax(-1, 0, sx, sy, dir);
+        }
+        while (!_open.isEmpty()) {
+            int state = _open.pop();
+            if (_stamp[state] == -_gen) {
+                continue;
+            }
+            _stamp[state] = -_gen;
+            _expanded++;
+            int cell = state >>> 2;
+            if (cell == target) {
+                return path(source, state);
+            }
+            int dir = state & 3;
+            int x = cell / h;
+            int y = cell - x * h;
+            int g = _g[state];
+            relax(state, g, x, y, dir);
+            if (dir < 2) {
+                relax(state, g, x, y, 2);
+                relax(state, g, x, y, 3);
+            } else {
+                int prevY = dir == 2 ? wrapY(y - 1) : wrapY(y + 1);
+                for (int k = 0; k < 2; k++) {
+                    int sideX = wrapX(k == 0 ? x + 1 : x - 1);
+                    if (forced(sideX, y, prevY)) {
+                        relax(state, g, x, y, k);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of jump points expanded by the last search
+     */
+    int expanded() {
+        return _expanded;
+    }
+
+    /**
+     * Jumps from (x, y) in direction dir (0..3: x+1, x-1, y+1, y-1) and opens the jump point found, if any.
+     */
+    private void relax(int from, int g, int x, int y, int dir) {
+        int cell = dir < 2 ? jumpX(x, y, dir == 0 ? 1 : -1) : jumpY(x, y, dir == 2 ? 1 : -1);
+        if (cell < 0) {
+            return;
+        }
+        int state = cell << 2 | dir;
+        int ng = g + _steps;
+        if (_stamp[state] == -_gen || (_stamp[state] == _gen && _g[state] <= ng)) {
+            return;
+        }
+        _stamp[state] = _gen;
+        _g[state] = ng;
+        _parent[state] = from;
+        int nx = cell / _h;
+        int f = ng + GridAStar.heuristic(nx, cell - nx * _h, _tx, _ty, _w, _h, _cyclic);
+        _open.push(((long) f << 32) | (Integer.MAX_VALUE - ng), state);
+    }
+
+    /**
+     * Horizontal jump: steps along row y until the target or a cell where a vertical jump succeeds.
+     * @return the jump point (its distance in _steps), or -1
+     */
+    private int jumpX(int x, int y, int dx) {
+        int limit = _cyclic ? _w - 1 : (dx > 0 ? _w - 1 - x : x);
+        for (int s = 1; s <= limit; s++) {
+            x = wrapX(x + dx);
+            if (!isFree(x, y)) {
+                return -1;
+            }
+            int cell = x * _h + y;
+            if (cell == _target || jumpY(x, y, 1) >= 0 || jumpY(x, y, -1) >= 0) {
+                _steps = s;
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Vertical jump: steps along column x until the target or a cell with a forced horizontal neighbor.
+     * Runs of up to 64 cells that do not cross the wrap seam are tested at once.
+     * @return the jump point (its distance in _steps), or -1
+     */
+    private int jumpY(int x, int y, int dy) {
+        int limit = _cyclic ? _h - 1 : (dy > 0 ? _h - 1 - y : y);
+        int left = wrapX(x - 1);
+        int right = wrapX(x + 1);
+        int col = x * _h;
+        int s = 1;
+        int cur = y + dy;
+        while (s <= limit) {
+            if (cur == _h) {
+                cur = 0;
+            } else if (cur < 0) {
+                cur = _h - 1;
+            }
+            int seam = dy > 0 ? 0 : _h - 1;
+            if (cur == seam) {
+                // The cell behind lies across the wrap seam, test this one on its own.
+                int prev = wrapY(cur - dy);
+                if (!isFree(x, cur)) {
+                    return -1;
+                }
+                if (col + cur == _target || forced(left, cur, prev) || forced(right, cur, prev)) {
+                    _steps = s;
+                    return col + cur;
+                }
+                s++;
+                cur += dy;
+                continue;
+            }
+            int len = Math.min(64, Math.min(limit - s + 1, dy > 0 ? _h - cur : cur + 1));
+            int lo = dy > 0 ? cur : cur - len + 1;
+            long mask = len == 64 ? -1L : (1L << len) - 1;
+            long open = window(col + lo) & mask;
+            long stop = ~open & mask;
+            stop |= forcedRun(left, lo, dy) & open & mask;
+            stop |= forcedRun(right, lo, dy) & open & mask;
+            int t = _target - col - lo;
+            if (t >= 0 && t < len) {
+                stop |= 1L << t;
+            }
+            if (stop != 0) {
+                int bit = dy > 0 ? Long.numberOfTrailingZeros(stop) : 63 - Long.numberOfLeadingZeros(stop);
+                if ((open & (1L << bit)) == 0) {
+                    return -1;
+                }
+                _steps = s + Math.abs(lo + bit - cur);
+                return col + lo + bit;
+            }
+            s += len;
+            cur += dy * len;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true iff the side cell (sideX, y) is free while (sideX, prevY) is blocked
+     */
+    private boolean forced(int sideX, int y, int prevY) {
+        return sideX >= 0 && isFree(sideX, y) && !isFree(sideX, prevY);
+    }
+
+    /**
+     * Forced-neighbor bits for the 64 rows starting at lo of a vertical move in direction dy:
+     * bit t is set iff (sideX, lo+t) is free and (sideX, lo+t-dy) is blocked.
+     */
+    private long forcedRun(int sideX, int lo, int dy) {
+        if (sideX < 0) {
+            return 0;
+        }
+        int base = sideX * _h + lo;
+        return window(base) & ~window(base - dy);
+    }
+
+    /**
+     * @return the 64 passability bits starting at cell index i (bits outside the map read as 0)
+     */
+    private long window(int i) {
+        if (i < 0) {
+            return (i > -64 ? _free[0] << -i : 0);
+        }
+        int word = i >>> 6;
+        int shift = i & 63;
+        long lowPart = word < _free.length ? _free[word] >>> shift : 0;
+        if (shift == 0 || word + 1 >= _free.length) {
+            return lowPart;
+        }
+        return lowPart | _free[word + 1] << (64 - shift);
+    }
+
+    private boolean isFree(int x, int y) {
+        int i = x * _h + y;
+        return (_free[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @return x wrapped onto the map when cyclic, or -1 if it falls outside a non-cyclic map
+     */
+    private int wrapX(int x) {
+        if (x >= 0 && x < _w) {
+            return x;
+        }
+        return _cyclic ? Math.floorMod(x, _w) : -1;
+    }
+
+    private int wrapY(int y) {
+        if (y >= 0 && y < _h) {
+            return y;
+        }
+        return _cyclic ? Math.floorMod(y, _h) : -1;
+    }
+
+    /**
+     * Expands the chain of jump points ending in goal into every cell of the path.
+     */
+    private int[] path(int source, int goal) {
+        int[] cells = new int[_g[goal] + 1];
+        int i = cells.length - 1;
+        for (int state = goal; state >= 0; state = _parent[state]) {
+            int from = _parent[state] < 0 ? 0 : _g[_parent[state]];
+            int back = (state & 3) ^ 1;
+            int cell = state >>> 2;
+            for (int s = _g[state]; s > from; s--) {
+                cells[i--] = cell;
+                int x = cell / _h;
+                cell = GridBfs.neighbor(x, cell - x * _h, back, _w, _h, _cyclic);
+            }
+        }
+        cells[0] = source;
+        return cells;
+    }
+
+    private void begin(long[] free, int w, int h, boolean cyclic, int target) {
+        _free = free;
+        _w = w;
+        _h = h;
+        _cyclic = cyclic;
+        _target = target;
+        _tx = target / h;
+        _ty = target - _tx * h;
+        int n = 4 * w * h;
+        if (_g.length < n) {
+            _g = new int[n];
+            _parent = new int[n];
+            _stamp = new int[n];
+            _gen = 0;
+        }
+        if (++_gen == Integer.MAX_VALUE) {
+            Arrays.fill(_stamp, 0);
+            _gen = 1;
+        }
+        _open.clear();
+        _expanded = 0;
+    }
+}
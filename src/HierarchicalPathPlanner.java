@@ -0,0 +1,505 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical path planning (HPA*) for very large maps.
+ * The map is cut into square clusters. Along every border between two neighboring clusters,
+ * each maximal run of cells that are free on both sides is an entrance: a short run gets one
+ * crossing in its middle, a run of ENTRANCE_SPLIT or more cells one crossing at each end. The two cells of a
+ * crossing become abstract nodes joined by an edge of length 1, and the nodes of one cluster are
+ * joined by the BFS distances between them inside the cluster. A query connects start and goal to
+ * the nodes of their clusters, runs A* over this small graph, and then refines each abstract edge
+ * into cells with a BFS inside a single cluster.
+ * On a cyclic map the last clusters of a row (column) border the first ones across the wrap seam.
+ * <p>
+ * The paths are near-optimal, not shortest: they must pass through the chosen crossing cells,
+ * which usually costs a few steps on long routes. Use Map.shortestPath when exact length matters.
+ * <p>
+ * The planner reads the map live. After changing cells, call update with the changed cell or
+ * region (for example the regions of Map.drainDirtyRegions); only the clusters touching it and
+ * their direct neighbors are rebuilt.
+ */
+public final class HierarchicalPathPlanner {
+    /** Default cluster side length. */
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+    private static final int ENTRANCE_SPLIT = 6;
+    private static final int START = -1;
+
+    private final Map _map;
+    private final int _obsColor;
+    private final boolean _cyclic;
+    private final int _size;
+    private final int _width;
+    private final int _height;
+    private final int _cols;
+    private final int _rows;
+    // Crossings per cluster, as pairs (cell inside, cell in the neighbor): across its right and its top border.
+    private final int[][] _right;
+    private final int[][] _top;
+    // Abstract nodes per cluster and the intra-cluster distance matrix between them (-1 = no path).
+    private final int[][] _nodes;
+    private final int[][] _intra;
+    // Node index inside its own cluster, per cell (-1 if the cell is not a node).
+    private final int[] _nodeIndex;
+
+    // Scratch for cluster BFS (local cell indices).
+    private final int[] _dist;
+    private final int[] _from;
+    private final int[] _queue;
+    // Scratch for the abstract search, per cell.
+    private int[] _g = new int[0];
+    private int[] _parent = new int[0];
+    private boolean[] _inter = new boolean[0];
+    private int[] _stamp = new int[0];
+    private int _gen;
+    private final IntMinHeap _open = new IntMinHeap();
+
+    /**
+     * Builds a planner with the default cluster size, using the map's cyclic setting.
+     * @param map the map, read live
+     * @param obsColor obstacle color
+     */
+    public HierarchicalPathPlanner(Map map, int obsColor) {
+        this(map, obsColor, DEFAULT_CLUSTER_SIZE, map.isCyclic());
+    }
+
+    /**
+     * Builds a planner.
+     * @param map the map, read live
+     * @param obsColor obstacle color
+     * @param clusterSize cluster side length
+     * @param cyclic allow wrapping
+     */
+    public HierarchicalPathPlanner(Map map, int obsColor, int clusterSize, boolean cyclic) {
+        if (clusterSize <= 0) {
+            throw new RuntimeException("Cluster size must be positive: " + clusterSize);
+        }
+        _map = map;
+        _obsColor = obsColor;
+        _cyclic = cyclic;
+        _size = clusterSize;
+        _width = map.getWidth();
+        _height = map.getHeight();
+        _cols = (_width + clusterSize - 1) / clusterSize;
+        _rows = (_height + clusterSize - 1) / clusterSize;
+        int clusters = _cols * _rows;
+        _right = new int[clusters][];
+        _top = new int[clusters][];
+        _nodes = new int[clusters][];
+        _intra = new int[clusters][];
+        _nodeIndex = new int[_width * _height];
+        Arrays.fill(_nodeIndex, -1);
+        _dist = new int[clusterSize * clusterSize];
+        _from = new int[clusterSize * clusterSize];
+        _queue = new int[clusterSize * clusterSize];
+
+        for (int c = 0; c < clusters; c++) {
+            _right[c] = crossings(c, true);
+            _top[c] = crossings(c, false);
+        }
+        for (int c = 0; c < clusters; c++) {
+            buildCluster(c);
+        }
+    }
+
+    /**
+     * Finds a path from p1 to p2 through the cluster graph.
+     * @param p1 start point
+     * @param p2 end point
+     * @return the cells of a near-shortest path, p1 first and p2 last, or null if there is no path
+     */
+    public Pixel2D[] findPath(Pixel2D p1, Pixel2D p2) {
+        if (p1 == null || p2 == null || !_map.isInside(p1) || !_map.isInside(p2)) {
+            return null;
+        }
+        int source = p1.getX() * _height + p1.getY();
+        int target = p2.getX() * _height + p2.getY();
+        if (!isFree(source) || !isFree(target)) {
+            return null;
+        }
+        if (source == target) {
+            return new Pixel2D[] {p1};
+        }
+        int sc = clusterOf(source);
+        int tc = clusterOf(target);
+
+        begin();
+        // The goal is a virtual node: it is reached from the nodes of its own cluster.
+        int[] toGoal = new int[_nodes[tc].length];
+        bfs(tc, target, -1);
+        for (int i = 0; i < toGoal.length; i++) {
+            toGoal[i] = _dist[local(tc, _nodes[tc][i])];
+        }
+        bfs(sc, source, -1);
+        int direct = sc == tc ? _dist[local(sc, target)] : -1;
+        int goalG = Integer.MAX_VALUE;
+        int goalParent = 0;
+        if (direct >= 0) {
+            goalG = direct;
+            goalParent = START;
+        }
+        int[] startNodes = _nodes[sc];
+        for (int node : startNodes) {
+            int d = _dist[local(sc, node)];
+            if (d >= 0) {
+                relax(node, d, START, false, target);
+            }
+        }
+
+        while (!_open.isEmpty()) {
+            if ((_open.peekKey() >>> 32) >= goalG) {
+                break;
+            }
+            int u = _open.pop();
+            if (_stamp[u] == -_gen) {
+                continue;
+            }
+            _stamp[u] = -_gen;
+            int g = _g[u];
+            int c = clusterOf(u);
+            int ui = _nodeIndex[u];
+            int[] nodes = _nodes[c];
+            int k = nodes.length;
+            for (int vi = 0; vi < k; vi++) {
+                int d = _intra[c][ui * k + vi];
+                if (vi != ui && d >= 0) {
+                    relax(nodes[vi], g + d, u, false, target);
+                }
+            }
+            if (c == tc && toGoal[ui] >= 0 && g + toGoal[ui] < goalG) {
+                goalG = g + toGoal[ui];
+                goalParent = u;
+            }
+            relaxCrossings(_right[c], u, 0, g, target);
+            relaxCrossings(_top[c], u, 0, g, target);
+            relaxCrossings(_right[leftOf(c)], u, 1, g, target);
+            relaxCrossings(_top[belowOf(c)], u, 1, g, target);
+        }
+        if (goalG == Integer.MAX_VALUE) {
+            return null;
+        }
+        return refine(source, target, goalParent, goalG);
+    }
+
+    /**
+     * Rebuilds the clusters around one changed cell.
+     * @param x x-coordinate of the changed cell
+     * @param y y-coordinate of the changed cell
+     */
+    public void update(int x, int y) {
+        update(new MapRegion(x, y, 1, 1));
+    }
+
+    /**
+     * Rebuilds the clusters overlapping a changed region, and their direct neighbors.
+     * @param region changed cells
+     */
+    public void update(MapRegion region) {
+        int x0 = Math.max(0, region.getX()) / _size;
+        int y0 = Math.max(0, region.getY()) / _size;
+        int x1 = (Math.min(_width, region.getX() + region.getWidth()) - 1) / _size;
+        int y1 = (Math.min(_height, region.getY() + region.getHeight()) - 1) / _size;
+        if (x1 < x0 || y1 < y0) {
+            return;
+        }
+        boolean[] dirty = new boolean[_cols * _rows];
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                int c = cx * _rows + cy;
+                _right[c] = crossings(c, true);
+                _top[c] = crossings(c, false);
+                int left = leftOf(c);
+                int below = belowOf(c);
+                _right[left] = crossings(left, true);
+                _top[below] = crossings(below, false);
+                dirty[c] = true;
+                dirty[left] = true;
+                dirty[below] = true;
+                dirty[rightOf(c)] = true;
+                dirty[aboveOf(c)] = true;
+            }
+        }
+        for (int c = 0; c < dirty.length; c++) {
+            if (dirty[c]) {
+                buildCluster(c);
+            }
+        }
+    }
+
+    /**
+     * @return number of abstract nodes (crossing cells) in the cluster graph
+     */
+    public int nodeCount() {
+        int count = 0;
+        for (int[] nodes : _nodes) {
+            count += nodes.length;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the crossings of one border of a cluster: its right border (to x+1) or its top border (to y+1).
+     * @return pairs (cell inside, cell in the neighbor)
+     */
+    private int[] crossings(int c, boolean right) {
+        int cx = c / _rows;
+        int cy = c - cx * _rows;
+        int inner;
+        int outer;
+        int from;
+        int to;
+        if (right) {
+            inner = Math.min(_width, (cx + 1) * _size) - 1;
+            outer = inner + 1;
+            from = cy * _size;
+            to = Math.min(_height, from + _size);
+            if (outer == _width) {
+                outer = _cyclic ? 0 : -1;
+            }
+        } else {
+            inner = Math.min(_height, (cy + 1) * _size) - 1;
+            outer = inner + 1;
+            from = cx * _size;
+            to = Math.min(_width, from + _size);
+            if (outer == _height) {
+                outer = _cyclic ? 0 : -1;
+            }
+        }
+        if (outer < 0 || outer == inner) {
+            return new int[0];
+        }
+        int[] out = new int[4 * (to - from)];
+        int n = 0;
+        int run = -1;
+        for (int t = from; t <= to; t++) {
+            boolean open = t < to && isFree(right ? cell(inner, t) : cell(t, inner))
+                    && isFree(right ? cell(outer, t) : cell(t, outer));
+            if (open && run < 0) {
+                run = t;
+            } else if (!open && run >= 0) {
+                int len = t - run;
+                int[] picks = len >= ENTRANCE_SPLIT ? new int[] {run, t - 1} : new int[] {run + len / 2};
+                for (int p : picks) {
+                    out[n++] = right ? cell(inner, p) : cell(p, inner);
+                    out[n++] = right ? cell(outer, p) : cell(p, outer);
+                }
+                run = -1;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Collects the nodes of a cluster from the four borders around it and computes their distance matrix.
+     */
+    private void buildCluster(int c) {
+        if (_nodes[c] != null) {
+            for (int node : _nodes[c]) {
+                _nodeIndex[node] = -1;
+            }
+        }
+        int[] nodes = new int[16];
+        int k = 0;
+        int[][] borders = {_right[c], _top[c], _right[leftOf(c)], _top[belowOf(c)]};
+        for (int[] border : borders) {
+            for (int i = 0; i < border.length; i++) {
+                int cell = border[i];
+                if (clusterOf(cell) == c && _nodeIndex[cell] < 0) {
+                    if (k == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, k * 2);
+                    }
+                    _nodeIndex[cell] = k;
+                    nodes[k++] = cell;
+                }
+            }
+        }
+        nodes = Arrays.copyOf(nodes, k);
+        int[] intra = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            bfs(c, nodes[i], -1);
+            for (int j = 0; j < k; j++) {
+                intra[i * k + j] = _dist[local(c, nodes[j])];
+            }
+        }
+        _nodes[c] = nodes;
+        _intra[c] = intra;
+    }
+
+    /**
+     * Follows the crossings of a border that touch node u. side 0: u is the inner cell of the pairs, side 1: the outer one.
+     */
+    private void relaxCrossings(int[] border, int u, int side, int g, int target) {
+        for (int i = 0; i < border.length; i += 2) {
+            if (border[i + side] == u) {
+                relax(border[i + 1 - side], g + 1, u, true, target);
+            }
+        }
+    }
+
+    private void relax(int node, int g, int parent, boolean inter, int target) {
+        if (_stamp[node] == -_gen || (_stamp[node] == _gen && _g[node] <= g)) {
+            return;
+        }
+        _stamp[node] = _gen;
+        _g[node] = g;
+        _parent[node] = parent;
+        _inter[node] = inter;
+        int x = node / _height;
+        int f = g + GridAStar.heuristic(x, node - x * _height, target / _height, target % _height,
+                _width, _height, _cyclic);
+        _open.push(((long) f << 32) | (Integer.MAX_VALUE - g), node);
+    }
+
+    /**
+     * Turns the abstract route ending in goalParent into cells, one cluster BFS per intra-cluster edge.
+     */
+    private Pixel2D[] refine(int source, int target, int goalParent, int length) {
+        int[] cells = new int[length + 1];
+        int end = length;
+        cells[end] = target;
+        int next = target;
+        int node = goalParent;
+        boolean inter = false;
+        while (true) {
+            int from = node == START ? source : node;
+            if (inter) {
+                cells[--end] = from;
+            } else {
+                bfs(clusterOf(next), next, from);
+                // Walk from 'from' towards 'next' along the BFS parents rooted at 'next'.
+                int c = clusterOf(next);
+                int steps = _dist[local(c, from)];
+                int li = local(c, from);
+                int pos = end - steps;
+                for (int s = 0; s < steps; s++) {
+                    cells[pos + s] = global(c, li);
+                    li = _from[li];
+                }
+                end = pos;
+            }
+            if (node == START) {
+                break;
+            }
+            inter = _inter[node];
+            next = node;
+            node = _parent[node];
+        }
+        Pixel2D[] path = new Pixel2D[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            path[i] = new Index2D(cells[i] / _height, cells[i] % _height);
+        }
+        return path;
+    }
+
+    /**
+     * BFS from a cell over the free cells of one cluster (no wrapping inside the cluster).
+     * Leaves distances and parents in _dist and _from (local indices).
+     * @param stop local search stops once this cell is reached, -1 for none
+     * @return the distance to stop, or -1
+     */
+    private int bfs(int c, int source, int stop) {
+        int cx = c / _rows;
+        int cy = c - cx * _rows;
+        int x0 = cx * _size;
+        int y0 = cy * _size;
+        int cw = Math.min(_width, x0 + _size) - x0;
+        int ch = Math.min(_height, y0 + _size) - y0;
+        Arrays.fill(_dist, 0, cw * ch, -1);
+        int start = (source / _height - x0) * ch + (source % _height - y0);
+        int goal = stop < 0 ? -1 : (stop / _height - x0) * ch + (stop % _height - y0);
+        _dist[start] = 0;
+        _from[start] = start;
+        int head = 0;
+        int tail = 0;
+        _queue[tail++] = start;
+        while (head < tail) {
+            int cur = _queue[head++];
+            if (cur == goal) {
+                return _dist[cur];
+            }
+            int lx = cur / ch;
+            int ly = cur - lx * ch;
+            for (int k = 0; k < 4; k++) {
+                int nx = lx + (k == 0 ? 1 : k == 1 ? -1 : 0);
+                int ny = ly + (k == 2 ? 1 : k == 3 ? -1 : 0);
+                if (nx < 0 || ny < 0 || nx >= cw || ny >= ch) {
+                    continue;
+                }
+                int next = nx * ch + ny;
+                if (_dist[next] < 0 && isFree((x0 + nx) * _height + y0 + ny)) {
+                    _dist[next] = _dist[cur] + 1;
+                    _from[next] = cur;
+                    _queue[tail++] = next;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void begin() {
+        int n = _width * _height;
+        if (_g.length < n) {
+            _g = new int[n];
+            _parent = new int[n];
+            _inter = new boolean[n];
+            _stamp = new int[n];
+            _gen = 0;
+        }
+        if (++_gen == Integer.MAX_VALUE) {
+            Arrays.fill(_stamp, 0);
+            _gen = 1;
+        }
+        _open.clear();
+    }
+
+    private boolean isFree(int cell) {
+        return _map.getPixelAt(cell) != _obsColor;
+    }
+
+    private int cell(int x, int y) {
+        return x * _height + y;
+    }
+
+    private int clusterOf(int cell) {
+        int x = cell / _height;
+        return (x / _size) * _rows + (cell - x * _height) / _size;
+    }
+
+    /**
+     * @return the local index of a cell inside cluster c
+     */
+    private int local(int c, int cell) {
+        int x0 = (c / _rows) * _size;
+        int y0 = (c % _rows) * _size;
+        int ch = Math.min(_height, y0 + _size) - y0;
+        return (cell / _height - x0) * ch + (cell % _height - y0);
+    }
+
+    private int global(int c, int li) {
+        int x0 = (c / _rows) * _size;
+        int y0 = (c % _rows) * _size;
+        int ch = Math.min(_height, y0 + _size) - y0;
+        return (x0 + li / ch) * _height + y0 + li % ch;
+    }
+
+    private int leftOf(int c) {
+        int cx = c / _rows;
+        return (cx == 0 ? _cols - 1 : cx - 1) * _rows + c % _rows;
+    }
+
+    private int rightOf(int c) {
+        int cx = c / _rows;
+        return (cx == _cols - 1 ? 0 : cx + 1) * _rows + c % _rows;
+    }
+
+    private int belowOf(int c) {
+        int cy = c % _rows;
+        return c - cy + (cy == 0 ? _rows - 1 : cy - 1);
+    }
+
+    private int aboveOf(int c) {
+        int cy = c % _rows;
+        return c - cy + (cy == _rows - 1 ? 0 : cy + 1);
+    }
+}
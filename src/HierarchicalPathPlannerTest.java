@@ -0,0 +1,82 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalPathPlannerTest {
+
+    private static final int WALL = 1;
+
+    private static void assertPath(Map m, Pixel2D[] path, Pixel2D from, Pixel2D to, boolean cyclic) {
+        assertEquals(from, path[0]);
+        assertEquals(to, path[path.length - 1]);
+        for (int i = 0; i < path.length; i++) {
+            assertNotEquals(WALL, m.getPixel(path[i]));
+            if (i > 0) {
+                int dx = Math.abs(path[i].getX() - path[i - 1].getX());
+                int dy = Math.abs(path[i].getY() - path[i - 1].getY());
+                if (cyclic) {
+                    dx = Math.min(dx, m.getWidth() - dx);
+                    dy = Math.min(dy, m.getHeight() - dy);
+                }
+                assertEquals(1, dx + dy);
+            }
+        }
+    }
+
+    // Verifies planned paths are valid and close to the BFS length around a long wall.
+    @Test
+    void testPathAroundWall() {
+        Map m = new Map(200, 120, 0);
+        m.drawLine(new Index2D(100, 0), new Index2D(100, 100), WALL);
+        HierarchicalPathPlanner planner = new HierarchicalPathPlanner(m, WALL, 16, false);
+        Index2D from = new Index2D(20, 30);
+        Index2D to = new Index2D(180, 30);
+
+        Pixel2D[] path = planner.findPath(from, to);
+        int best = m.shortestPath(from, to, WALL, false).length;
+
+        assertPath(m, path, from, to, false);
+        assertTrue(path.length <= best * 11 / 10);
+        assertTrue(planner.nodeCount() > 0);
+    }
+
+    // Verifies crossings across the wrap seam are used on a cyclic map.
+    @Test
+    void testCyclicSeam() {
+        Map m = new Map(64, 64, 0);
+        m.drawLine(new Index2D(30, 0), new Index2D(30, 63), WALL);
+        HierarchicalPathPlanner planner = new HierarchicalPathPlanner(m, WALL, 16, true);
+
+        Pixel2D[] path = planner.findPath(new Index2D(5, 10), new Index2D(60, 10));
+        assertPath(m, path, new Index2D(5, 10), new Index2D(60, 10), true);
+        int best = m.shortestPath(new Index2D(5, 10), new Index2D(60, 10), WALL, true).length;
+        assertTrue(path.length < 30);
+        assertTrue(path.length <= best + 16);
+
+        assertNull(new HierarchicalPathPlanner(m, WALL, 16, false).findPath(new Index2D(5, 10), new Index2D(60, 10)));
+    }
+
+    // Verifies update after setPixel opens and closes a route without a full rebuild.
+    @Test
+    void testIncrementalUpdate() {
+        Map m = new Map(80, 80, 0);
+        m.drawLine(new Index2D(40, 0), new Index2D(40, 79), WALL);
+        HierarchicalPathPlanner planner = new HierarchicalPathPlanner(m, WALL, 10, false);
+        Index2D from = new Index2D(10, 45);
+        Index2D to = new Index2D(70, 45);
+        assertNull(planner.findPath(from, to));
+
+        m.setPixel(40, 45, 0);
+        planner.update(40, 45);
+        Pixel2D[] path = planner.findPath(from, to);
+        assertPath(m, path, from, to, false);
+        assertTrue(path.length >= 61 && path.length <= 61 + 20);
+
+        m.setPixel(40, 45, WALL);
+        planner.update(new MapRegion(40, 45, 1, 1));
+        assertNull(planner.findPath(from, to));
+        assertEquals(1, planner.findPath(from, from).length);
+    }
+}
@@ -0,0 +1,291 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * BFS distances from one source cell of a Map, kept up to date as cells turn into
+ * obstacles or back, by repairing only the distances a change affects.
+ * <ul>
+ * <li>A cell that becomes free takes the best distance of its neighbors plus one, and the
+ * improvement spreads outwards breadth-first until it stops improving anything.</li>
+ * <li>A cell that becomes an obstacle invalidates the cells whose every shortest path went
+ * through it: a cell stays valid as long as some free neighbor is one step closer. The
+ * invalidated cells are then re-seeded from their valid neighbors and recomputed in distance
+ * order, so only that region is searched again.</li>
+ * </ul>
+ * After update, the distances equal a fresh Map.allDistance from the same source.
+ * The field keeps its own copy of which cells are passable: call update for every changed cell
+ * or region (for example the regions of Map.drainDirtyRegions). Changes of value that do not
+ * switch a cell between obstacle and free cost nothing.
+ */
+public final class IncrementalDistanceField {
+    private final Map _map;
+    private final int _obsColor;
+    private final boolean _cyclic;
+    private final int _width;
+    private final int _height;
+    private final int _source;
+    private final boolean[] _free;
+    private final int[] _dist;
+    private final boolean[] _lost;
+    private final IntQueue _queue = new IntQueue(64);
+    private final IntMinHeap _open = new IntMinHeap();
+    private int[] _region = new int[64];
+    private int _touched;
+
+    /**
+     * Builds the field using the map's cyclic setting.
+     * @param map the map, read on update
+     * @param source source cell
+     * @param obsColor obstacle color
+     */
+    public IncrementalDistanceField(Map map, Pixel2D source, int obsColor) {
+        this(map, source, obsColor, map.isCyclic());
+    }
+
+    /**
+     * Builds the field.
+     * @param map the map, read on update
+     * @param source source cell
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     */
+    public IncrementalDistanceField(Map map, Pixel2D source, int obsColor, boolean cyclic) {
+        if (source == null || !map.isInside(source)) {
+            throw new RuntimeException("Source must be inside the map: " + source);
+        }
+        _map = map;
+        _obsColor = obsColor;
+        _cyclic = cyclic;
+        _width = map.getWidth();
+        _height = map.getHeight();
+        _source = source.getX() * _height + source.getY();
+        int n = _width * _height;
+        _free = new boolean[n];
+        _dist = new int[n];
+        _lost = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            _free[i] = map.getPixelAt(i) != obsColor;
+        }
+        recompute();
+    }
+
+    /**
+     * Repairs the distances after the cell (x, y) may have changed.
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    public void update(int x, int y) {
+        _touched = 0;
+        apply(x * _height + y);
+    }
+
+    /**
+     * Repairs the distances after the cells of a region may have changed.
+     * @param region changed cells
+     */
+    public void update(MapRegion region) {
+        _touched = 0;
+        int x1 = Math.min(_width, region.getX() + region.getWidth());
+        int y1 = Math.min(_height, region.getY() + region.getHeight());
+        for (int x = Math.max(0, region.getX()); x < x1; x++) {
+            for (int y = Math.max(0, region.getY()); y < y1; y++) {
+                apply(x * _height + y);
+            }
+        }
+    }
+
+    /**
+     * @return the distance from the source to (x, y), or -1 if it is unreachable or an obstacle
+     */
+    public int getDistance(int x, int y) {
+        return _dist[x * _height + y];
+    }
+
+    /**
+     * @return the distances as a new map, equal to Map.allDistance from the source, or null if the source is an obstacle
+     */
+    public Map2D toMap() {
+        if (!_free[_source]) {
+            return null;
+        }
+        Map out = new Map(_width, _height, -1);
+        for (int i = 0; i < _dist.length; i++) {
+            out.setPixelAt(i, _dist[i]);
+        }
+        return out;
+    }
+
+    /**
+     * @return number of cells whose distance the last update recomputed
+     */
+    public int touched() {
+        return _touched;
+    }
+
+    private void apply(int cell) {
+        boolean free = _map.getPixelAt(cell) != _obsColor;
+        if (free == _free[cell]) {
+            return;
+        }
+        _free[cell] = free;
+        if (cell == _source) {
+            recompute();
+        } else if (free) {
+            opened(cell);
+        } else {
+            closed(cell);
+        }
+    }
+
+    /**
+     * Full BFS from the source (all -1 if the source is an obstacle).
+     */
+    private void recompute() {
+        Arrays.fill(_dist, -1);
+        _touched += _dist.length;
+        if (!_free[_source]) {
+            return;
+        }
+        _dist[_source] = 0;
+        _queue.clear();
+        _queue.add(_source);
+        spread();
+    }
+
+    /**
+     * A cell became free: give it the best neighbor distance + 1 and spread the improvement.
+     */
+    private void opened(int cell) {
+        int best = -1;
+        int x = cell / _height;
+        int y = cell - x * _height;
+        for (int k = 0; k < 4; k++) {
+            int next = GridBfs.neighbor(x, y, k, _width, _height, _cyclic);
+            if (next >= 0 && _free[next] && _dist[next] >= 0 && (best < 0 || _dist[next] < best)) {
+                best = _dist[next];
+            }
+        }
+        if (best < 0) {
+            return;
+        }
+        _dist[cell] = best + 1;
+        _touched++;
+        _queue.clear();
+        _queue.add(cell);
+        spread();
+    }
+
+    /**
+     * Breadth-first improvement from the queued cells: a neighbor is updated whenever the queued cell offers a shorter distance.
+     */
+    private void spread() {
+        while (!_queue.isEmpty()) {
+            int cur = _queue.remove();
+            int nd = _dist[cur] + 1;
+            int x = cur / _height;
+            int y = cur - x * _height;
+            for (int k = 0; k < 4; k++) {
+                int next = GridBfs.neighbor(x, y, k, _width, _height, _cyclic);
+                if (next >= 0 && _free[next] && (_dist[next] < 0 || _dist[next] > nd)) {
+                    _dist[next] = nd;
+                    _touched++;
+                    _queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * A cell became an obstacle: invalidate the cells that lost every shortest path, then recompute them.
+     */
+    private void closed(int cell) {
+        if (_dist[cell] < 0) {
+            return;
+        }
+        // Phase 1: collect the cells left without a free neighbor one step closer.
+        int count = 0;
+        _lost[cell] = true;
+        _region[count++] = cell;
+        _queue.clear();
+        _queue.add(cell);
+        while (!_queue.isEmpty()) {
+            int cur = _queue.remove();
+            int child = _dist[cur] + 1;
+            int x = cur / _height;
+            int y = cur - x * _height;
+            for (int k = 0; k < 4; k++) {
+                int next = GridBfs.neighbor(x, y, k, _width, _height, _cyclic);
+                if (next >= 0 && !_lost[next] && _dist[next] == child && !supported(next)) {
+                    _lost[next] = true;
+                    if (count == _region.length) {
+                        _region = Arrays.copyOf(_region, count * 2);
+                    }
+                    _region[count++] = next;
+                    _queue.add(next);
+                }
+            }
+        }
+        // Phase 2: seed the lost cells from their valid neighbors and settle them in distance order.
+        for (int i = 0; i < count; i++) {
+            _dist[_region[i]] = -1;
+        }
+        _touched += count;
+        _open.clear();
+        for (int i = 0; i < count; i++) {
+            int c = _region[i];
+            if (!_free[c]) {
+                continue;
+            }
+            int best = -1;
+            int x = c / _height;
+            int y = c - x * _height;
+            for (int k = 0; k < 4; k++) {
+                int next = GridBfs.neighbor(x, y, k, _width, _height, _cyclic);
+                if (next >= 0 && _free[next] && !_lost[next] && _dist[next] >= 0
+                        && (best < 0 || _dist[next] < best)) {
+                    best = _dist[next];
+                }
+            }
+            if (best >= 0) {
+                _dist[c] = best + 1;
+                _open.push(best + 1, c);
+            }
+        }
+        while (!_open.isEmpty()) {
+            int d = (int) _open.peekKey();
+            int cur = _open.pop();
+            if (_dist[cur] != d) {
+                continue;
+            }
+            int x = cur / _height;
+            int y = cur - x * _height;
+            for (int k = 0; k < 4; k++) {
+                int next = GridBfs.neighbor(x, y, k, _width, _height, _cyclic);
+                if (next >= 0 && _free[next] && _lost[next] && (_dist[next] < 0 || _dist[next] > d + 1)) {
+                    _dist[next] = d + 1;
+                    _open.push(d + 1, next);
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            _lost[_region[i]] = false;
+        }
+    }
+
+    /**
+     * @return true iff some free, still valid neighbor of cell is one step closer to the source
+     */
+    private boolean supported(int cell) {
+        int want = _dist[cell] - 1;
+        int x = cell / _height;
+        int y = cell - x * _height;
+        for (int k = 0; k < 4; k++) {
+            int next = GridBfs.neighbor(x, y, k, _width, _height, _cyclic);
+            if (next >= 0 && _free[next] && !_lost[next] && _dist[next] == want) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,65 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalDistanceFieldTest {
+
+    private static final int WALL = 1;
+
+    // Verifies inserting and removing obstacles keeps the field equal to a fresh allDistance.
+    @Test
+    void testMatchesAllDistance() {
+        for (boolean cyclic : new boolean[] {false, true}) {
+            Map m = new Map(30, 20, 0);
+            m.drawLine(new Index2D(10, 0), new Index2D(10, 15), WALL);
+            Index2D source = new Index2D(2, 2);
+            IncrementalDistanceField field = new IncrementalDistanceField(m, source, WALL, cyclic);
+            assertEquals(m.allDistance(source, WALL, cyclic), field.toMap());
+
+            int[][] toggles = {{10, 16}, {10, 17}, {10, 18}, {10, 19}, {10, 5}, {10, 16}, {5, 2}, {3, 2}, {2, 3}, {2, 1}};
+            for (int[] t : toggles) {
+                m.setPixel(t[0], t[1], m.getPixel(t[0], t[1]) == WALL ? 0 : WALL);
+                field.update(t[0], t[1]);
+                assertEquals(m.allDistance(source, WALL, cyclic), field.toMap());
+            }
+        }
+    }
+
+    // Verifies a small change repairs a small region, and an unrelated recolor costs nothing.
+    @Test
+    void testRepairIsLocal() {
+        Map m = new Map(200, 200, 0);
+        m.setCyclic(false);
+        IncrementalDistanceField field = new IncrementalDistanceField(m, new Index2D(0, 0), WALL);
+
+        m.setPixel(150, 150, WALL);
+        field.update(150, 150);
+        assertTrue(field.touched() < 100);
+        assertEquals(-1, field.getDistance(150, 150));
+        assertEquals(302, field.getDistance(151, 151));
+
+        m.setPixel(20, 20, 5);
+        field.update(new MapRegion(20, 20, 1, 1));
+        assertEquals(0, field.touched());
+        assertEquals(m.allDistance(new Index2D(0, 0), WALL), field.toMap());
+    }
+
+    // Verifies a source that becomes an obstacle leaves every cell unreachable until it is freed.
+    @Test
+    void testBlockedSource() {
+        Map m = new Map(10, 10, 0);
+        Index2D source = new Index2D(4, 4);
+        IncrementalDistanceField field = new IncrementalDistanceField(m, source, WALL);
+
+        m.setPixel(source, WALL);
+        field.update(4, 4);
+        assertNull(field.toMap());
+        assertEquals(-1, field.getDistance(5, 4));
+
+        m.setPixel(source, 0);
+        field.update(4, 4);
+        assertEquals(m.allDistance(source, WALL), field.toMap());
+    }
+}
@@ -0,0 +1,96 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable binary min-heap of primitive ints ordered by a long key, used as the open list
+ * of the A*-style searches. Keys and values sit in two parallel arrays, so nothing is boxed.
+ * There is no decrease-key: push the value again with the better key and skip stale entries when popped.
+ */
+final class IntMinHeap {
+    private long[] _keys = new long[16];
+    private int[] _values = new int[16];
+    private int _size;
+
+    /**
+     * Adds v with the given key.
+     * @param key ordering key, smallest first
+     * @param v value to add
+     */
+    void push(long key, int v) {
+        if (_size == _keys.length) {
+            _keys = Arrays.copyOf(_keys, _size * 2);
+            _values = Arrays.copyOf(_values, _size * 2);
+        }
+        int i = _size++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (_keys[up] <= key) {
+                break;
+            }
+            _keys[i] = _keys[up];
+            _values[i] = _values[up];
+            i = up;
+        }
+        _keys[i] = key;
+        _values[i] = v;
+    }
+
+    /**
+     * @return the smallest key in the heap
+     */
+    long peekKey() {
+        if (_size == 0) {
+            throw new NoSuchElementException("empty heap");
+        }
+        return _keys[0];
+    }
+
+    /**
+     * Removes and returns the value with the smallest key.
+     * @return that value
+     */
+    int pop() {
+        if (_size == 0) {
+            throw new NoSuchElementException("empty heap");
+        }
+        int top = _values[0];
+        int n = --_size;
+        long key = _keys[n];
+        int v = _values[n];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= n) {
+                break;
+            }
+            if (c + 1 < n && _keys[c + 1] < _keys[c]) {
+                c++;
+            }
+            if (_keys[c] >= key) {
+                break;
+            }
+            _keys[i] = _keys[c];
+            _values[i] = _values[c];
+            i = c;
+        }
+        _keys[i] = key;
+        _values[i] = v;
+        return top;
+    }
+
+    /**
+     * @return true iff the heap holds no elements
+     */
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Removes all elements, keeping the allocated arrays.
+     */
+    void clear() {
+        _size = 0;
+    }
+}
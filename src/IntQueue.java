@@ -0,0 +1,82 @@
+package assignments.Ex3;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A growable FIFO ring buffer of primitive ints, used as the BFS queue of packed cell indices.
+ * Starts small and doubles on demand, so the queue only costs as much as the widest BFS frontier.
+ */
+final class IntQueue {
+    private int[] _buf;
+    private int _head;
+    private int _size;
+
+    /**
+     * Constructs an empty queue with room for at least capacity elements before growing.
+     * @param capacity initial capacity
+     */
+    IntQueue(int capacity) {
+        int cap = 16;
+        while (cap < capacity) {
+            cap <<= 1;
+        }
+        _buf = new int[cap];
+    }
+
+    /**
+     * Adds v to the tail of the queue.
+     * @param v value to add
+     */
+    void add(int v) {
+        if (_size == _buf.length) {
+            grow();
+        }
+        _buf[(_head + _size) & (_buf.length - 1)] = v;
+        _size++;
+    }
+
+    /**
+     * Removes and returns the head of the queue.
+     * @return the head value
+     */
+    int remove() {
+        if (_size == 0) {
+            throw new NoSuchElementException("empty queue");
+        }
+        int v = _buf[_head];
+        _head = (_head + 1) & (_buf.length - 1);
+        _size--;
+        return v;
+    }
+
+    /**
+     * @return true iff the queue holds no elements
+     */
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * @return number of queued elements
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Removes all elements, keeping the allocated buffer.
+     */
+    void clear() {
+        _head = 0;
+        _size = 0;
+    }
+
+    private void grow() {
+        int[] nb = new int[_buf.length << 1];
+        int firstPart = Math.min(_size, _buf.length - _head);
+        System.arraycopy(_buf, _head, nb, 0, firstPart);
+        System.arraycopy(_buf, 0, nb, firstPart, _size - firstPart);
+        _buf = nb;
+        _head = 0;
+    }
+}
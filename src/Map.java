@@ -1,19 +1,51 @@
 package assignments.Ex3;
 
-import java.io.Serializable;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 
 /**
  * A class representing a 2D map (matrix) of integers.
  * It implements Map2D and supports drawing, filling, pathfinding, and cyclic behavior.
+ * Maps serialize in a compact binary format (see writeBoard).
  */
-public class Map implements Map2D, Serializable {
-    private int[][] _map;
+public class Map implements Map2D, Externalizable {
+    private static final long serialVersionUID = 2L;
+    private static final int FORMAT_VERSION = 1;
+    // Dirty cells are tracked per DIRTY_TILE x DIRTY_TILE tile.
+    private static final int DIRTY_SHIFT = 3;
+    private static final int DIRTY_TILE = 1 << DIRTY_SHIFT;
+
+    // Cells are stored column by column in one flat array: (x, y) lives at x * _height + y.
+    private int[] _data;
     private int _width;
     private int _height;
     // Default cyclic mode is taken from GameInfo.CYCLIC_MODE
     private boolean _cyclic = GameInfo.CYCLIC_MODE;
+    private transient View _view;
+    private transient PathEngine _pathEngine = PathEngine.BFS;
+    // Bumped by every operation that may change cells or dimensions.
+    private transient long _version;
+    // Passability bitsets per obstacle color, valid while _passableVersion == _version.
+    private transient HashMap<Integer, long[]> _passable;
+    private transient long _passableVersion = -1;
+    // Zobrist hash of the cells, kept up to date by write() while _hashValid.
+    private transient long _hash;
+    private transient boolean _hashValid;
+    // One bit per dirty tile (tile tx, ty is bit tx * tiles-per-column + ty); _allDirty covers the whole map.
+    private transient long[] _dirty;
+    private transient boolean _allDirty;
 
     /**
      * Constructs a map of size w*h, filled with value v.
@@ -25,6 +57,13 @@ public class Map implements Map2D, Serializable {
         init(w, h, v);
     }
 
+    /**
+     * Constructs a 1*1 map holding 0. Used by deserialization, which then reads the real content.
+     */
+    public Map() {
+        this(1, 1, 0);
+    }
+
     /**
      * Constructs a square map of size*size, filled with 0.
      * @param size width and height
@@ -41,22 +80,36 @@ public class Map implements Map2D, Serializable {
         init(data);
     }
 
+    /**
+     * Constructs a w*h map that takes ownership of a flat cell array (no copy).
+     * @param w width
+     * @param h height
+     * @param data flat cells, indexed x * h + y
+     */
+    private Map(int w, int h, int[] data) {
+        _width = w;
+        _height = h;
+        _data = data;
+        changedAll();
+    }
+
     /**
      * Initializes the map with dimensions w*h and fills it with v.
+     * Throws a RuntimeException if w or h is negative or w*h does not fit in an int.
      * @param w width
      * @param h height
      * @param v initial value
      */
     @Override
     public void init(int w, int h, int v) {
+        if (w < 0 || h < 0 || (long) w * h > Integer.MAX_VALUE) {
+            throw new RuntimeException("illegal map size: " + w + "x" + h);
+        }
         _width = w;
         _height = h;
-        _map = new int[_width][_height];
-        for (int x = 0; x < _width; x++) {
-            for (int y = 0; y < _height; y++) {
-                _map[x][y] = v;
-            }
-        }
+        _data = new int[_width * _height];
+        BulkOps.fill(_data, v);
+        changedAll();
     }
 
     /**
@@ -80,29 +133,106 @@ public class Map implements Map2D, Serializable {
         }
         _width = arr.length;
         _height = h;
-        _map = new int[_width][_height];
+        _data = new int[_width * _height];
         for (int x = 0; x < _width; x++) {
-            for (int y = 0; y < _height; y++) {
-                _map[x][y] = arr[x][y];
-            }
+            System.arraycopy(arr[x], 0, _data, x * _height, _height);
         }
+        changedAll();
     }
 
     /**
      * Returns a deep copy of the map as a 2D array.
+     * The 2D array is built on demand from the flat storage.
      * @return 2D integer array
      */
     @Override
     public int[][] getMap() {
         int[][] ans = new int[_width][_height];
         for (int x = 0; x < _width; x++) {
-            for (int y = 0; y < _height; y++) {
-                ans[x][y] = _map[x][y];
-            }
+            System.arraycopy(_data, x * _height, ans[x], 0, _height);
         }
         return ans;
     }
 
+    /**
+     * Returns a read-only view of this map that shares its storage (no copy).
+     * The view follows later changes to the map, including init and rescale.
+     * @return a read-only view
+     */
+    public Map2DView view() {
+        if (_view == null) {
+            _view = new View();
+        }
+        return _view;
+    }
+
+    /**
+     * Returns a read-only buffer over column x (the cells [x][0..height-1]) without copying.
+     * @param x x-coordinate
+     * @return read-only column buffer, position 0 is y=0
+     */
+    public IntBuffer column(int x) {
+        if (x < 0 || x >= _width) {
+            throw new IndexOutOfBoundsException("column " + x + " outside width " + _width);
+        }
+        return IntBuffer.wrap(_data, x * _height, _height).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the linear cell index of (x, y), i.e. x * getHeight() + y.
+     * No bounds checking is done.
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return linear cell index
+     */
+    public int index(int x, int y) {
+        return x * _height + y;
+    }
+
+    /**
+     * Returns the x-coordinate of a linear cell index.
+     * @param index linear cell index
+     * @return x-coordinate
+     */
+    public int indexX(int index) {
+        return index / _height;
+    }
+
+    /**
+     * Returns the y-coordinate of a linear cell index.
+     * @param index linear cell index
+     * @return y-coordinate
+     */
+    public int indexY(int index) {
+        return index % _height;
+    }
+
+    /**
+     * Returns the number of cells in the map (width * height).
+     * @return number of cells
+     */
+    public int size() {
+        return _data.length;
+    }
+
+    /**
+     * Returns the value at a linear cell index. No bounds checking beyond the array's own.
+     * @param index linear cell index
+     * @return pixel value
+     */
+    public int getPixelAt(int index) {
+        return _data[index];
+    }
+
+    /**
+     * Sets the value at a linear cell index. No bounds checking beyond the array's own.
+     * @param index linear cell index
+     * @param v new value
+     */
+    public void setPixelAt(int index, int v) {
+        write(index, v);
+    }
+
     /**
      * Returns the width of the map.
      */
@@ -130,7 +260,7 @@ public class Map implements Map2D, Serializable {
         if (x < 0 || x >= _width || y < 0 || y >= _height) {
             return -1;
         }
-        return _map[x][y];
+        return _data[x * _height + y];
     }
 
     /**
@@ -157,7 +287,7 @@ public class Map implements Map2D, Serializable {
         if (x < 0 || x >= _width || y < 0 || y >= _height) {
             return;
         }
-        _map[x][y] = v;
+        write(x * _height + y, v);
     }
 
     /**
@@ -209,12 +339,19 @@ public class Map implements Map2D, Serializable {
         if (p == null || !sameDimensions(p)) {
             return;
         }
+        if (p instanceof Map) {
+            BulkOps.add(_data, ((Map) p)._data);
+            changedAll();
+            return;
+        }
         int[][] pm = p.getMap();
         for (int x = 0; x < _width; x++) {
+            int base = x * _height;
             for (int y = 0; y < _height; y++) {
-                _map[x][y] = _map[x][y] + pm[x][y];
+                _data[base + y] = _data[base + y] + pm[x][y];
             }
         }
+        changedAll();
     }
 
     /**
@@ -222,11 +359,8 @@ public class Map implements Map2D, Serializable {
      * @param scalar multiplication factor
      */
     public void mul(double scalar) {
-        for (int x = 0; x < _width; x++) {
-            for (int y = 0; y < _height; y++) {
-                _map[x][y] = (int) (_map[x][y] * scalar);
-            }
-        }
+        BulkOps.mul(_data, scalar);
+        changedAll();
     }
 
     /**
@@ -243,7 +377,7 @@ public class Map implements Map2D, Serializable {
         if (newW <= 0 || newH <= 0) {
             return;
         }
-        int[][] newMap = new int[newW][newH];
+        int[] newData = new int[newW * newH];
 
         for (int x = 0; x < newW; x++) {
             for (int y = 0; y < newH; y++) {
@@ -255,102 +389,287 @@ public class Map implements Map2D, Serializable {
                 if (iy < 0) iy = 0;
                 if (ix >= _width) ix = _width - 1;
                 if (iy >= _height) iy = _height - 1;
-                newMap[x][y] = _map[ix][iy];
+                newData[x * newH + y] = _data[ix * _height + iy];
             }
         }
 
         _width = newW;
         _height = newH;
-        _map = newMap;
+        _data = newData;
+        changedAll();
     }
 
     /**
-     * Draws a filled circle on the map.
+     * Draws a filled circle on the map: every pixel whose distance from center is at most rad.
+     * Pixels outside the map are clipped.
      * @param center center point
      * @param rad radius
      * @param newColor color value to fill
      */
     public void drawCircle(Pixel2D center, double rad, int newColor) {
+        drawCircle(center, rad, newColor, false);
+    }
+
+    /**
+     * Draws a filled circle on the map. If cyclic, pixels past an edge wrap around (pass isCyclic()
+     * for the map's own setting); otherwise they are clipped.
+     * Integer only: each column of the circle is one vertical span, found by a midpoint style walk.
+     * @param center center point
+     * @param rad radius
+     * @param newColor color value to fill
+     * @param cyclic wrap around the edges
+     */
+    public void drawCircle(Pixel2D center, double rad, int newColor, boolean cyclic) {
         if (center == null || rad < 0) {
             return;
         }
-        int cx = center.getX();
-        int cy = center.getY();
-        int r = (int) Math.ceil(rad);
-
-        for (int x = cx - r; x <= cx + r; x++) {
-            for (int y = cy - r; y <= cy + r; y++) {
-                if (x < 0 || x >= _width || y < 0 || y >= _height) {
-                    continue;
-                }
-                double dx = x - cx;
-                double dy = y - cy;
-                if (Math.sqrt(dx * dx + dy * dy) <= rad) {
-                    _map[x][y] = newColor;
-                }
-            }
-        }
+        drawCircle(center.getX(), center.getY(), rad, newColor, cyclic);
     }
 
     /**
      * Draws a line segment between p1 and p2.
+     * Pixels outside the map are clipped.
      * @param p1 start point
      * @param p2 end point
      * @param newColor color value to draw
      */
     public void drawLine(Pixel2D p1, Pixel2D p2, int newColor) {
-        if (p1 == null || p2 == null) {
-            return;
-        }
-        int x1 = p1.getX();
-        int y1 = p1.getY();
-        int x2 = p2.getX();
-        int y2 = p2.getY();
+        drawLine(p1, p2, newColor, false);
+    }
 
-        double dx = x2 - x1;
-        double dy = y2 - y1;
-        int steps = (int) Math.max(Math.abs(dx), Math.abs(dy));
-        if (steps == 0) {
-            setPixel(x1, y1, newColor);
+    /**
+     * Draws a line segment between p1 and p2 with an integer (Bresenham) rasterizer.
+     * The line has one pixel per step along its major axis, and the minor coordinate is
+     * rounded half up, as a DDA with Math.round would do.
+     * If cyclic, pixels past an edge wrap around; otherwise they are clipped.
+     * @param p1 start point
+     * @param p2 end point
+     * @param newColor color value to draw
+     * @param cyclic wrap around the edges
+     */
+    public void drawLine(Pixel2D p1, Pixel2D p2, int newColor, boolean cyclic) {
+        if (p1 == null || p2 == null) {
             return;
         }
-
-        double xInc = dx / steps;
-        double yInc = dy / steps;
-        double x = x1;
-        double y = y1;
-
-        for (int i = 0; i <= steps; i++) {
-            int xi = (int) Math.round(x);
-            int yi = (int) Math.round(y);
-            setPixel(xi, yi, newColor);
-            x += xInc;
-            y += yInc;
-        }
+        drawLine(p1.getX(), p1.getY(), p2.getX(), p2.getY(), newColor, cyclic);
     }
 
     /**
      * Draws a filled rectangle defined by two opposite corners.
+     * Pixels outside the map are clipped.
      * @param p1 first corner
      * @param p2 opposite corner
      * @param newColor color value to fill
      */
     public void drawRect(Pixel2D p1, Pixel2D p2, int newColor) {
+        drawRect(p1, p2, newColor, false);
+    }
+
+    /**
+     * Draws a filled rectangle defined by two opposite corners, one vertical span per column.
+     * If cyclic, the rectangle wraps around the edges; otherwise it is clipped.
+     * @param p1 first corner
+     * @param p2 opposite corner
+     * @param newColor color value to fill
+     * @param cyclic wrap around the edges
+     */
+    public void drawRect(Pixel2D p1, Pixel2D p2, int newColor, boolean cyclic) {
         if (p1 == null || p2 == null) {
             return;
         }
-        int minX = Math.min(p1.getX(), p2.getX());
-        int maxX = Math.max(p1.getX(), p2.getX());
-        int minY = Math.min(p1.getY(), p2.getY());
-        int maxY = Math.max(p1.getY(), p2.getY());
+        drawRect(p1.getX(), p1.getY(), p2.getX(), p2.getY(), newColor, cyclic);
+    }
 
+    /**
+     * Draws many circles in one call; circle i has center (cx[i], cy[i]) and radius rad[i].
+     * @param cx center x-coordinates
+     * @param cy center y-coordinates
+     * @param rad radii (negative radii are skipped)
+     * @param newColor color value to fill
+     * @param cyclic wrap around the edges
+     */
+    public void drawCircles(int[] cx, int[] cy, double[] rad, int newColor, boolean cyclic) {
+        checkBatch(cx.length, cy.length, rad.length, rad.length);
+        for (int i = 0; i < cx.length; i++) {
+            if (rad[i] >= 0) {
+                drawCircle(cx[i], cy[i], rad[i], newColor, cyclic);
+            }
+        }
+    }
+
+    /**
+     * Draws many line segments in one call; segment i runs from (x1[i], y1[i]) to (x2[i], y2[i]).
+     * @param x1 start x-coordinates
+     * @param y1 start y-coordinates
+     * @param x2 end x-coordinates
+     * @param y2 end y-coordinates
+     * @param newColor color value to draw
+     * @param cyclic wrap around the edges
+     */
+    public void drawLines(int[] x1, int[] y1, int[] x2, int[] y2, int newColor, boolean cyclic) {
+        checkBatch(x1.length, y1.length, x2.length, y2.length);
+        for (int i = 0; i < x1.length; i++) {
+            drawLine(x1[i], y1[i], x2[i], y2[i], newColor, cyclic);
+        }
+    }
+
+    /**
+     * Draws many filled rectangles in one call; rectangle i has corners (x1[i], y1[i]) and (x2[i], y2[i]).
+     * @param x1 first corner x-coordinates
+     * @param y1 first corner y-coordinates
+     * @param x2 opposite corner x-coordinates
+     * @param y2 opposite corner y-coordinates
+     * @param newColor color value to fill
+     * @param cyclic wrap around the edges
+     */
+    public void drawRects(int[] x1, int[] y1, int[] x2, int[] y2, int newColor, boolean cyclic) {
+        checkBatch(x1.length, y1.length, x2.length, y2.length);
+        for (int i = 0; i < x1.length; i++) {
+            drawRect(x1[i], y1[i], x2[i], y2[i], newColor, cyclic);
+        }
+    }
+
+    private static void checkBatch(int a, int b, int c, int d) {
+        if (a != b || a != c || a != d) {
+            throw new IllegalArgumentException("batch arrays differ in length");
+        }
+    }
+
+    private void drawCircle(int cx, int cy, double rad, int newColor, boolean cyclic) {
+        // limit is the largest integer d with Math.sqrt(d) <= rad, so the test below matches
+        // the floating point rule exactly while staying in integers.
+        long limit = (long) (rad * rad);
+        while (Math.sqrt(limit + 1) <= rad) {
+            limit++;
+        }
+        while (limit >= 0 && Math.sqrt(limit) > rad) {
+            limit--;
+        }
+        int r = (int) Math.ceil(rad);
+        long hy = r;
+        for (long dx = 0; dx <= r; dx++) {
+            while (hy >= 0 && dx * dx + hy * hy > limit) {
+                hy--;
+            }
+            if (hy < 0) {
+                break;
+            }
+            drawSpan(cx + (int) dx, cy - (int) hy, cy + (int) hy, newColor, cyclic);
+            if (dx != 0) {
+                drawSpan(cx - (int) dx, cy - (int) hy, cy + (int) hy, newColor, cyclic);
+            }
+        }
+    }
+
+    private void drawLine(int x1, int y1, int x2, int y2, int newColor, boolean cyclic) {
+        int dx = x2 - x1;
+        int dy = y2 - y1;
+        boolean xMajor = Math.abs(dx) >= Math.abs(dy);
+        int steps = xMajor ? Math.abs(dx) : Math.abs(dy);
+        int major = xMajor ? Integer.signum(dx) : Integer.signum(dy);
+        int minorDelta = xMajor ? dy : dx;
+        // minor offset after i steps = floorDiv(2 * i * minorDelta + steps, 2 * steps), tracked incrementally
+        long twoSteps = 2L * Math.max(steps, 1);
+        long rem = steps;
+        int off = 0;
+        for (int i = 0; i <= steps; i++) {
+            int x = xMajor ? x1 + i * major : x1 + off;
+            int y = xMajor ? y1 + off : y1 + i * major;
+            plot(x, y, newColor, cyclic);
+            rem += 2L * minorDelta;
+            if (rem >= twoSteps) {
+                rem -= twoSteps;
+                off++;
+            } else if (rem < 0) {
+                rem += twoSteps;
+                off--;
+            }
+        }
+    }
+
+    private void drawRect(int x1, int y1, int x2, int y2, int newColor, boolean cyclic) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2);
+        int maxY = Math.max(y1, y2);
+        if (cyclic) {
+            // Columns past the first full turn would only repaint the same cells.
+            maxX = (int) Math.min(maxX, (long) minX + _width - 1);
+        } else {
+            minX = Math.max(minX, 0);
+            maxX = Math.min(maxX, _width - 1);
+        }
         for (int x = minX; x <= maxX; x++) {
-            for (int y = minY; y <= maxY; y++) {
-                setPixel(x, y, newColor);
+            drawSpan(x, minY, maxY, newColor, cyclic);
+        }
+    }
+
+    private void plot(int x, int y, int v, boolean cyclic) {
+        if (cyclic) {
+            x = Math.floorMod(x, _width);
+            y = Math.floorMod(y, _height);
+        } else if (x < 0 || x >= _width || y < 0 || y >= _height) {
+            return;
+        }
+        write(x * _height + y, v);
+    }
+
+    /**
+     * Paints column x from row y0 to row y1 (inclusive), wrapping or clipping as asked.
+     */
+    private void drawSpan(int x, int y0, int y1, int v, boolean cyclic) {
+        if (cyclic) {
+            x = Math.floorMod(x, _width);
+            if ((long) y1 - y0 + 1 >= _height) {
+                fillSpan(x * _height, 0, _height, v);
+                return;
             }
+            int a = Math.floorMod(y0, _height);
+            int b = Math.floorMod(y1, _height);
+            if (a <= b) {
+                fillSpan(x * _height, a, b + 1, v);
+            } else {
+                fillSpan(x * _height, a, _height, v);
+                fillSpan(x * _height, 0, b + 1, v);
+            }
+            return;
+        }
+        if (x < 0 || x >= _width) {
+            return;
+        }
+        y0 = Math.max(y0, 0);
+        y1 = Math.min(y1, _height - 1);
+        if (y0 <= y1) {
+            fillSpan(x * _height, y0, y1 + 1, v);
         }
     }
 
+    /**
+     * Sets cells [base + from, base + to) of one column to v with a single Arrays.fill.
+     * The Zobrist hash (if computed) is updated for the cells that change, and the span's
+     * dirty tiles are marked once.
+     */
+    private void fillSpan(int base, int from, int to, int v) {
+        if (from >= to) {
+            return;
+        }
+        int lo = base + from;
+        int hi = base + to;
+        if (_hashValid) {
+            long h = _hash;
+            for (int i = lo; i < hi; i++) {
+                int old = _data[i];
+                if (old != v) {
+                    h ^= zobristKey(i, old) ^ zobristKey(i, v);
+                }
+            }
+            _hash = h;
+        }
+        Arrays.fill(_data, lo, hi, v);
+        markDirtySpan(base / _height, from, to - 1);
+        _version++;
+    }
+
     /**
      * Checks if two maps are equal (same dimensions and same content).
      */
@@ -366,10 +685,14 @@ public class Map implements Map2D, Serializable {
         if (!sameDimensions(other)) {
             return false;
         }
+        if (other instanceof Map) {
+            return BulkOps.equals(_data, ((Map) other)._data);
+        }
         int[][] om = other.getMap();
         for (int x = 0; x < _width; x++) {
+            int base = x * _height;
             for (int y = 0; y < _height; y++) {
-                if (_map[x][y] != om[x][y]) {
+                if (_data[base + y] != om[x][y]) {
                     return false;
                 }
             }
@@ -395,60 +718,31 @@ public class Map implements Map2D, Serializable {
         if (x0 < 0 || x0 >= _width || y0 < 0 || y0 >= _height) {
             return 0;
         }
-        int old_v = _map[x0][y0];
+        int start = x0 * _height + y0;
+        int old_v = _data[start];
         if (old_v == new_v) {
             return 0;
         }
 
-        boolean[][] visited = new boolean[_width][_height];
-        Queue<Index2D> q = new LinkedList<>();
-        q.add(new Index2D(x0, y0));
-        visited[x0][y0] = true;
-        _map[x0][y0] = new_v;
-        int count = 1;
-
-        int[] dx = {1, -1, 0, 0};
-        int[] dy = {0, 0, 1, -1};
-
-        while (!q.isEmpty()) {
-            Index2D p = q.remove();
-            int cx = p.getX();
-            int cy = p.getY();
-
-            for (int k = 0; k < 4; k++) {
-                int nx = cx + dx[k];
-                int ny = cy + dy[k];
-
-                if (cyclic) {
-                    if (nx < 0) nx = _width - 1;
-                    if (nx >= _width) nx = 0;
-                    if (ny < 0) ny = _height - 1;
-                    if (ny >= _height) ny = 0;
-                } else {
-                    if (nx < 0 || nx >= _width || ny < 0 || ny >= _height) {
-                        continue;
-                    }
-                }
-
-                if (!visited[nx][ny] && _map[nx][ny] == old_v) {
-                    visited[nx][ny] = true;
-                    _map[nx][ny] = new_v;
-                    q.add(new Index2D(nx, ny));
-                    count++;
-                }
+        GridBfs bfs = GridBfs.get();
+        int count = bfs.fill(_data, _width, _height, cyclic, start, new_v);
+        // The engine wrote the cells directly; bring the hash and dirty tiles up to date.
+        for (int i = 0; i < count; i++) {
+            int idx = bfs.queuedAt(i);
+            if (_hashValid) {
+                _hash ^= zobristKey(idx, old_v) ^ zobristKey(idx, new_v);
             }
+            markDirty(idx);
         }
+        _version++;
         return count;
     }
 
     /**
-     * Computes the shortest path from p1 to p2 using BFS.
+     * Computes the shortest path from p1 to p2 with this map's path engine (BFS by default).
      * Avoids obstacles of color 'obsColor'.
      * Uses 'cyclic' parameter to determine if wrapping is allowed.
      *
-
-     [Image of BFS shortest path]
-
      * @param p1 start point
      * @param p2 end point
      * @param obsColor obstacle color
@@ -456,6 +750,21 @@ public class Map implements Map2D, Serializable {
      * @return array of points representing the path, or null if no path
      */
     public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        return shortestPath(p1, p2, obsColor, cyclic, _pathEngine);
+    }
+
+    /**
+     * Computes the shortest path from p1 to p2 with the given search algorithm.
+     * Every engine returns a path of the same (shortest) length, or null if there is none.
+     *
+     * @param p1 start point
+     * @param p2 end point
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @param engine search algorithm
+     * @return array of points representing the path, or null if no path
+     */
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic, PathEngine engine) {
         if (p1 == null || p2 == null) {
             return null;
         }
@@ -463,72 +772,225 @@ public class Map implements Map2D, Serializable {
             return null;
         }
 
-        int sx = p1.getX();
-        int sy = p1.getY();
-        int tx = p2.getX();
-        int ty = p2.getY();
+        int source = p1.getX() * _height + p1.getY();
+        int target = p2.getX() * _height + p2.getY();
 
-        if (_map[sx][sy] == obsColor || _map[tx][ty] == obsColor) {
+        if (_data[source] == obsColor || _data[target] == obsColor) {
             return null;
         }
 
-        boolean[][] visited = new boolean[_width][_height];
-        Index2D[][] parent = new Index2D[_width][_height];
-        Queue<Index2D> q = new LinkedList<>();
-
-        int[] dx = {1, -1, 0, 0};
-        int[] dy = {0, 0, 1, -1};
+        long[] free = passable(obsColor);
+        if (engine == PathEngine.ASTAR) {
+            GridAStar astar = GridAStar.get();
+            if (!astar.search(free, _width, _height, cyclic, source, target)) {
+                return null;
+            }
+            int len = 1;
+            for (int step = target; step != source; step = astar.parent(step)) {
+                len++;
+            }
+            Pixel2D[] path = new Pixel2D[len];
+            int step = target;
+            for (int i = len - 1; i >= 0; i--) {
+                path[i] = new Index2D(step / _height, step % _height);
+                step = astar.parent(step);
+            }
+            return path;
+        }
 
-        visited[sx][sy] = true;
-        q.add(new Index2D(sx, sy));
+        if (engine == PathEngine.JPS) {
+            int[] cells = GridJps.get().search(free, _width, _height, cyclic, source, target);
+            if (cells == null) {
+                return null;
+            }
+            Pixel2D[] path = new Pixel2D[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                path[i] = new Index2D(cells[i] / _height, cells[i] % _height);
+            }
+            return path;
+        }
 
-        while (!q.isEmpty()) {
-            Index2D cur = q.remove();
-            int cx = cur.getX();
-            int cy = cur.getY();
+        GridBfs bfs = GridBfs.get();
+        int meet;
+        if (engine == PathEngine.BIDIRECTIONAL) {
+            meet = bfs.searchBidirectional(free, _width, _height, cyclic, source, target);
+        } else {
+            meet = bfs.search(free, _width, _height, cyclic, source, target) ? target : -1;
+        }
+        if (meet < 0) {
+            return null;
+        }
 
-            if (cx == tx && cy == ty) {
-                break;
+        // source .. meet follows parent() backwards, meet .. target follows parentB() forwards.
+        // A path never has more cells than the map; a longer walk means the search state is corrupt.
+        int len = 1;
+        for (int step = meet; step != source; step = bfs.parent(step)) {
+            if (++len > _data.length) {
+                throw new IllegalStateException("path reconstruction did not reach the source");
+            }
+        }
+        int head = len;
+        for (int step = meet; step != target; step = bfs.parentB(step)) {
+            if (++len > _data.length) {
+                throw new IllegalStateException("path reconstruction did not reach the target");
             }
+        }
+        Pixel2D[] path = new Pixel2D[len];
+        int step = meet;
+        for (int i = head - 1; i >= 0; i--) {
+            path[i] = new Index2D(step / _height, step % _height);
+            step = bfs.parent(step);
+        }
+        step = meet;
+        for (int i = head; i < len; i++) {
+            step = bfs.parentB(step);
+            path[i] = new Index2D(step / _height, step % _height);
+        }
+        return path;
+    }
 
-            for (int k = 0; k < 4; k++) {
-                int nx = cx + dx[k];
-                int ny = cy + dy[k];
-
-                if (cyclic) {
-                    if (nx < 0) nx = _width - 1;
-                    if (nx >= _width) nx = 0;
-                    if (ny < 0) ny = _height - 1;
-                    if (ny >= _height) ny = 0;
-                } else {
-                    if (nx < 0 || nx >= _width || ny < 0 || ny >= _height) {
-                        continue;
-                    }
-                }
+    /**
+     * Sets the search algorithm used by shortestPath when none is given.
+     * @param engine search algorithm, null restores BFS
+     */
+    public void setPathEngine(PathEngine engine) {
+        _pathEngine = engine == null ? PathEngine.BFS : engine;
+    }
 
-                if (_map[nx][ny] == obsColor) {
-                    continue;
-                }
-                if (!visited[nx][ny]) {
-                    visited[nx][ny] = true;
-                    parent[nx][ny] = cur;
-                    q.add(new Index2D(nx, ny));
-                }
-            }
+    /**
+     * @return the search algorithm used by shortestPath when none is given
+     */
+    public PathEngine getPathEngine() {
+        return _pathEngine;
+    }
+
+    /**
+     * Computes the cheapest path from p1 to p2 when entering a cell costs a small integer
+     * that depends on its color (for example extra cost near ghosts instead of a hard wall).
+     * Runs Dial's bucket queue, so the time is linear in the map size plus the path cost.
+     *
+     * @param p1 start point
+     * @param p2 end point
+     * @param colorCost cost of entering a cell of a given color (0 .. GridDial.MAX_COST); negative means impassable
+     * @param cyclic allow wrapping
+     * @return the path and its total cost, or null if p2 cannot be reached (or either end is impassable)
+     * @throws RuntimeException if a cost exceeds GridDial.MAX_COST or a path cost does not fit in an int
+     */
+    public WeightedPath weightedPath(Pixel2D p1, Pixel2D p2, IntUnaryOperator colorCost, boolean cyclic) {
+        if (colorCost == null) {
+            return null;
+        }
+        int[] cost = new int[_data.length];
+        for (int i = 0; i < cost.length; i++) {
+            cost[i] = colorCost.applyAsInt(_data[i]);
+        }
+        return weightedPath(p1, p2, cost, cyclic);
+    }
+
+    /**
+     * Computes the cheapest path from p1 to p2 with the cost of entering each cell read from
+     * a second map of the same dimensions (a cost layer); negative costs are impassable.
+     *
+     * @param p1 start point
+     * @param p2 end point
+     * @param costLayer per-cell costs (0 .. GridDial.MAX_COST, negative for impassable)
+     * @param cyclic allow wrapping
+     * @return the path and its total cost, or null if p2 cannot be reached (or either end is impassable)
+     * @throws RuntimeException if a cost exceeds GridDial.MAX_COST or a path cost does not fit in an int
+     */
+    public WeightedPath weightedPath(Pixel2D p1, Pixel2D p2, Map2D costLayer, boolean cyclic) {
+        if (costLayer == null) {
+            return null;
         }
+        if (costLayer.getWidth() != _width || costLayer.getHeight() != _height) {
+            throw new RuntimeException("cost layer must be " + _width + "x" + _height);
+        }
+        int[] cost = new int[_data.length];
+        for (int i = 0; i < cost.length; i++) {
+            int x = i / _height;
+            cost[i] = costLayer.getPixel(x, i - x * _height);
+        }
+        return weightedPath(p1, p2, cost, cyclic);
+    }
 
-        if (!visited[tx][ty]) {
+    private WeightedPath weightedPath(Pixel2D p1, Pixel2D p2, int[] cost, boolean cyclic) {
+        if (p1 == null || p2 == null || !isInside(p1) || !isInside(p2)) {
             return null;
         }
+        int source = p1.getX() * _height + p1.getY();
+        int target = p2.getX() * _height + p2.getY();
+        if (cost[source] < 0 || cost[target] < 0) {
+            return null;
+        }
+        int maxCost = 0;
+        for (int c : cost) {
+            maxCost = Math.max(maxCost, c);
+        }
+        if (maxCost > GridDial.MAX_COST) {
+            throw new RuntimeException("cell cost " + maxCost + " exceeds " + GridDial.MAX_COST);
+        }
 
-        java.util.ArrayList<Pixel2D> path = new java.util.ArrayList<>();
-        Index2D step = new Index2D(tx, ty);
-        while (step != null) {
-            path.add(step);
-            step = parent[step.getX()][step.getY()];
+        GridDial dial = GridDial.get();
+        int total = dial.search(cost, maxCost, _width, _height, cyclic, source, target);
+        if (total < 0) {
+            return null;
+        }
+        int len = 1;
+        for (int step = target; step != source; step = dial.parent(step)) {
+            len++;
         }
-        java.util.Collections.reverse(path);
-        return path.toArray(new Pixel2D[0]);
+        Pixel2D[] path = new Pixel2D[len];
+        int step = target;
+        for (int i = len - 1; i >= 0; i--) {
+            path[i] = new Index2D(step / _height, step % _height);
+            step = dial.parent(step);
+        }
+        return new WeightedPath(path, total);
+    }
+
+    /**
+     * Finds the k nearest cells whose color matches (for example FOOD or POWER) with a single
+     * BFS from start that stops once k are found. Each result carries its distance and the
+     * first step towards it. The start cell itself is never a result.
+     *
+     * @param start start point
+     * @param colorMatch which colors count as targets
+     * @param k most targets wanted
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @return the targets nearest first (ties in BFS order), or null if start is outside the map or an obstacle
+     */
+    public NearestTargets nearestTargets(Pixel2D start, IntPredicate colorMatch, int k, int obsColor, boolean cyclic) {
+        return nearestTargets(start, colorMatch, k, Integer.MAX_VALUE, obsColor, cyclic);
+    }
+
+    /**
+     * nearestTargets that also gives up beyond maxDist steps.
+     *
+     * @param start start point
+     * @param colorMatch which colors count as targets
+     * @param k most targets wanted
+     * @param maxDist largest distance searched
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @return the targets nearest first (ties in BFS order), or null if start is outside the map or an obstacle
+     */
+    public NearestTargets nearestTargets(Pixel2D start, IntPredicate colorMatch, int k, int maxDist,
+                                         int obsColor, boolean cyclic) {
+        if (start == null || colorMatch == null || !isInside(start)) {
+            return null;
+        }
+        int source = start.getX() * _height + start.getY();
+        if (_data[source] == obsColor) {
+            return null;
+        }
+        int cap = Math.max(0, Math.min(k, _data.length - 1));
+        int[] cells = new int[cap];
+        int[] dist = new int[cap];
+        int[] first = new int[cap];
+        int count = GridBfs.get().nearest(_data, passable(obsColor), _width, _height, cyclic, source,
+                colorMatch, cap, maxDist, cells, dist, first);
+        return new NearestTargets(_height, count, cells, dist, first);
     }
 
     /**
@@ -549,58 +1011,358 @@ public class Map implements Map2D, Serializable {
             return null;
         }
 
-        int sx = start.getX();
-        int sy = start.getY();
-        if (_map[sx][sy] == obsColor) {
+        int source = start.getX() * _height + start.getY();
+        if (_data[source] == obsColor) {
             return null;
         }
 
-        int[][] dist = new int[_width][_height];
-        for (int x = 0; x < _width; x++) {
-            for (int y = 0; y < _height; y++) {
-                dist[x][y] = -1;
+        int[] dist = new int[_data.length];
+        GridBfs.get().distances(passable(obsColor), _width, _height, cyclic, source, dist);
+        return new Map(_width, _height, dist);
+    }
+
+    /**
+     * Computes, for every cell, the shortest path distance to the nearest of several sources
+     * (for example a ghost heat map), in a single BFS pass.
+     * Sources that are null, outside the map or obstacles are ignored.
+     *
+     * @param sources start points
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @return map of distances to the nearest source (-1 if none is reachable), or null if no source is usable
+     */
+    public Map2D allDistance(Pixel2D[] sources, int obsColor, boolean cyclic) {
+        return allDistance(sources, obsColor, cyclic, null);
+    }
+
+    /**
+     * Multi-source allDistance that also records which source is nearest to each cell.
+     *
+     * @param sources start points
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @param nearest if not null, receives for every cell the index in sources of its nearest source
+     *                (-1 where none is reachable); must have this map's dimensions.
+     *                Ties go to the source whose BFS wave arrives first, sources starting in array order.
+     * @return map of distances to the nearest source (-1 if none is reachable), or null if no source is usable
+     */
+    public Map2D allDistance(Pixel2D[] sources, int obsColor, boolean cyclic, Map2D nearest) {
+        if (sources == null) {
+            return null;
+        }
+        if (nearest != null && (nearest.getWidth() != _width || nearest.getHeight() != _height)) {
+            throw new RuntimeException("nearest map must be " + _width + "x" + _height);
+        }
+        int[] cells = new int[sources.length];
+        int[] index = new int[sources.length];
+        int count = 0;
+        for (int s = 0; s < sources.length; s++) {
+            Pixel2D p = sources[s];
+            if (p != null && isInside(p) && _data[p.getX() * _height + p.getY()] != obsColor) {
+                cells[count] = p.getX() * _height + p.getY();
+                index[count++] = s;
             }
         }
+        if (count == 0) {
+            return null;
+        }
 
-        Queue<Index2D> q = new LinkedList<>();
-        dist[sx][sy] = 0;
-        q.add(new Index2D(sx, sy));
+        int[] dist = new int[_data.length];
+        int[] owner = nearest == null ? null : new int[_data.length];
+        GridBfs.get().distances(passable(obsColor), _width, _height, cyclic, cells, count, dist, owner);
+        if (nearest != null) {
+            for (int i = 0; i < owner.length; i++) {
+                int x = i / _height;
+                nearest.setPixel(x, i - x * _height, owner[i] < 0 ? -1 : index[owner[i]]);
+            }
+        }
+        return new Map(_width, _height, dist);
+    }
 
-        int[] dx = {1, -1, 0, 0};
-        int[] dy = {0, 0, 1, -1};
+    /**
+     * Multi-source allDistance using the map's cyclic setting.
+     *
+     * @param sources start points
+     * @param obsColor obstacle color
+     * @return map of distances to the nearest source, or null if no source is usable
+     */
+    public Map2D allDistance(Pixel2D[] sources, int obsColor) {
+        return allDistance(sources, obsColor, _cyclic);
+    }
 
-        while (!q.isEmpty()) {
-            Index2D cur = q.remove();
-            int cx = cur.getX();
-            int cy = cur.getY();
-            int cd = dist[cx][cy];
+    /**
+     * Writes this map in the compact binary board format:
+     * a format version byte, width, height and the cyclic flag, followed by the cells
+     * (in linear index order) as runs of equal values, each run written as two varints:
+     * its length and its zigzag-encoded value.
+     * @param out destination
+     * @throws IOException on write failure
+     */
+    public void writeBoard(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(_width);
+        out.writeInt(_height);
+        out.writeBoolean(_cyclic);
+        int i = 0;
+        while (i < _data.length) {
+            int v = _data[i];
+            int end = i + 1;
+            while (end < _data.length && _data[end] == v) {
+                end++;
+            }
+            writeVarint(out, end - i);
+            writeVarint(out, (v << 1) ^ (v >> 31));
+            i = end;
+        }
+    }
 
-            for (int k = 0; k < 4; k++) {
-                int nx = cx + dx[k];
-                int ny = cy + dy[k];
+    /**
+     * Reads a map written by writeBoard.
+     * @param in source
+     * @return the map
+     * @throws IOException on read failure or if the data is not a valid board
+     */
+    public static Map readBoard(DataInput in) throws IOException {
+        Map ans = new Map();
+        ans.readBoardInto(in);
+        return ans;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeBoard(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readBoardInto(in);
+    }
+
+    private void readBoardInto(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new StreamCorruptedException("unsupported map format version " + version);
+        }
+        int w = in.readInt();
+        int h = in.readInt();
+        boolean cyclic = in.readBoolean();
+        if (w < 0 || h < 0 || (long) w * h > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("illegal map size " + w + "x" + h);
+        }
+        int[] data = new int[w * h];
+        int i = 0;
+        while (i < data.length) {
+            int run = readVarint(in);
+            int zz = readVarint(in);
+            if (run <= 0 || run > data.length - i) {
+                throw new StreamCorruptedException("bad run length " + run);
+            }
+            Arrays.fill(data, i, i + run, (zz >>> 1) ^ -(zz & 1));
+            i += run;
+        }
+        _width = w;
+        _height = h;
+        _data = data;
+        _cyclic = cyclic;
+        changedAll();
+    }
+
+    private static void writeVarint(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarint(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            if (shift == 28 && (b & 0x70) != 0) {
+                // The fifth byte only has room for the top 4 bits of an int.
+                throw new StreamCorruptedException("varint overflows an int");
+            }
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new StreamCorruptedException("varint too long");
+    }
+
+    /**
+     * Returns the modification version of this map. It changes whenever
+     * setPixel, setPixelAt, init, fill, addMap2D, mul, rescale or a draw method runs,
+     * so callers can cheaply tell whether cached results about the map are still valid.
+     * @return current version
+     */
+    public long getVersion() {
+        return _version;
+    }
+
+    /**
+     * Returns a 64-bit Zobrist hash of the cells: the XOR of a pseudo-random key per (cell, value).
+     * Single cell writes (setPixel, setPixelAt, fill, draw methods) update it in O(1) per changed cell;
+     * after a whole-map operation (init, addMap2D, mul, rescale) it is recomputed once, on demand.
+     * @return the board hash
+     */
+    public long zobristHash() {
+        if (!_hashValid) {
+            long h = 0;
+            for (int i = 0; i < _data.length; i++) {
+                h ^= zobristKey(i, _data[i]);
+            }
+            _hash = h;
+            _hashValid = true;
+        }
+        return _hash;
+    }
+
+    /**
+     * Returns a hash code consistent with equals, based on zobristHash().
+     * AbstractMap2D computes the same value, so equal maps of any Map2D kind hash alike.
+     */
+    @Override
+    public int hashCode() {
+        long h = zobristHash() ^ zobristKey(_width, _height);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the Zobrist key of value v at linear index i (SplitMix64 of the pair),
+     * so no key table has to be stored for arbitrary map sizes and values.
+     */
+    static long zobristKey(int i, int v) {
+        long z = (((long) i << 32) | (v & 0xFFFFFFFFL)) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Writes one cell, keeping the version and the Zobrist hash up to date.
+     */
+    private void write(int i, int v) {
+        int old = _data[i];
+        if (old != v) {
+            if (_hashValid) {
+                _hash ^= zobristKey(i, old) ^ zobristKey(i, v);
+            }
+            _data[i] = v;
+            markDirty(i);
+        }
+        _version++;
+    }
 
-                if (cyclic) {
-                    if (nx < 0) nx = _width - 1;
-                    if (nx >= _width) nx = 0;
-                    if (ny < 0) ny = _height - 1;
-                    if (ny >= _height) ny = 0;
-                } else {
-                    if (nx < 0 || nx >= _width || ny < 0 || ny >= _height) {
+    /**
+     * Records a change that may touch every cell (or the dimensions).
+     */
+    private void changedAll() {
+        _version++;
+        _hashValid = false;
+        _allDirty = true;
+        _dirty = null;
+    }
+
+    private void markDirty(int i) {
+        if (_allDirty) {
+            return;
+        }
+        int tilesY = (_height + DIRTY_TILE - 1) >>> DIRTY_SHIFT;
+        if (_dirty == null) {
+            int tilesX = (_width + DIRTY_TILE - 1) >>> DIRTY_SHIFT;
+            _dirty = new long[(tilesX * tilesY + 63) >>> 6];
+        }
+        int x = i / _height;
+        int t = (x >>> DIRTY_SHIFT) * tilesY + ((i - x * _height) >>> DIRTY_SHIFT);
+        _dirty[t >>> 6] |= 1L << t;
+    }
+
+    /**
+     * Returns the regions changed since the last call, and starts tracking afresh.
+     * Changes are recorded per 8x8 tile by setPixel, setPixelAt, fill and the draw methods;
+     * init, addMap2D, mul, rescale and deserialization mark the whole map.
+     * A new map is entirely dirty. Vertically adjacent dirty tiles are merged into one region,
+     * and regions are clipped to the map.
+     * @return dirty regions (empty if nothing changed)
+     */
+    public List<MapRegion> drainDirtyRegions() {
+        List<MapRegion> ans = new ArrayList<>();
+        if (_allDirty) {
+            ans.add(new MapRegion(0, 0, _width, _height));
+        } else if (_dirty != null) {
+            int tilesX = (_width + DIRTY_TILE - 1) >>> DIRTY_SHIFT;
+            int tilesY = (_height + DIRTY_TILE - 1) >>> DIRTY_SHIFT;
+            for (int tx = 0; tx < tilesX; tx++) {
+                int x0 = tx << DIRTY_SHIFT;
+                int w = Math.min(DIRTY_TILE, _width - x0);
+                int ty = 0;
+                while (ty < tilesY) {
+                    if (!isDirtyTile(tx * tilesY + ty)) {
+                        ty++;
                         continue;
                     }
+                    int first = ty;
+                    while (ty < tilesY && isDirtyTile(tx * tilesY + ty)) {
+                        ty++;
+                    }
+                    int y0 = first << DIRTY_SHIFT;
+                    ans.add(new MapRegion(x0, y0, w, Math.min(ty << DIRTY_SHIFT, _height) - y0));
                 }
+            }
+        }
+        _allDirty = false;
+        _dirty = null;
+        return ans;
+    }
 
-                if (_map[nx][ny] == obsColor) {
-                    continue;
-                }
-                if (dist[nx][ny] == -1) {
-                    dist[nx][ny] = cd + 1;
-                    q.add(new Index2D(nx, ny));
+    /**
+     * Marks the tiles covering rows y0..y1 of column x dirty.
+     */
+    private void markDirtySpan(int x, int y0, int y1) {
+        if (_allDirty) {
+            return;
+        }
+        int tilesY = (_height + DIRTY_TILE - 1) >>> DIRTY_SHIFT;
+        if (_dirty == null) {
+            int tilesX = (_width + DIRTY_TILE - 1) >>> DIRTY_SHIFT;
+            _dirty = new long[(tilesX * tilesY + 63) >>> 6];
+        }
+        int col = (x >>> DIRTY_SHIFT) * tilesY;
+        for (int ty = y0 >>> DIRTY_SHIFT; ty <= y1 >>> DIRTY_SHIFT; ty++) {
+            int t = col + ty;
+            _dirty[t >>> 6] |= 1L << t;
+        }
+    }
+
+    private boolean isDirtyTile(int t) {
+        return (_dirty[t >>> 6] & (1L << t)) != 0;
+    }
+
+    /**
+     * Returns a bitset with bit i set iff cell i (linear index) is not obsColor.
+     * The bitset is cached per obstacle color until the map's version changes.
+     * Callers must not modify the returned array.
+     * @param obsColor obstacle color
+     * @return passability bitset, one bit per cell
+     */
+    long[] passable(int obsColor) {
+        if (_passable == null || _passableVersion != _version) {
+            _passable = new HashMap<>();
+            _passableVersion = _version;
+        }
+        long[] bits = _passable.get(obsColor);
+        if (bits == null) {
+            bits = new long[(_data.length + 63) >>> 6];
+            for (int i = 0; i < _data.length; i++) {
+                if (_data[i] != obsColor) {
+                    bits[i >>> 6] |= 1L << i;
                 }
             }
+            _passable.put(obsColor, bits);
         }
-
-        return new Map(dist);
+        return bits;
     }
 
     /**
@@ -654,4 +1416,44 @@ public class Map implements Map2D, Serializable {
     public boolean isCyclic() {
         return _cyclic;
     }
-}
\ No newline at end of file
+
+    /**
+     * A read-only window on the enclosing map's cells.
+     */
+    private final class View implements Map2DView {
+        @Override
+        public int getWidth() {
+            return _width;
+        }
+
+        @Override
+        public int getHeight() {
+            return _height;
+        }
+
+        @Override
+        public boolean isCyclic() {
+            return _cyclic;
+        }
+
+        @Override
+        public int getPixel(int x, int y) {
+            return Map.this.getPixel(x, y);
+        }
+
+        @Override
+        public int getPixelAt(int index) {
+            return _data[index];
+        }
+
+        @Override
+        public IntBuffer column(int x) {
+            return Map.this.column(x);
+        }
+
+        @Override
+        public IntBuffer cells() {
+            return IntBuffer.wrap(_data).asReadOnlyBuffer();
+        }
+    }
+}
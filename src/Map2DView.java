@@ -0,0 +1,49 @@
+package assignments.Ex3;
+
+import java.nio.IntBuffer;
+
+/**
+ * A read-only view of a 2D map's cells.
+ * A view shares the map's storage (nothing is copied), so it always shows the current
+ * contents of the map, and it offers no way to change them.
+ */
+public interface Map2DView {
+    /**
+     * @return the width of the viewed map (first coordinate).
+     */
+    public int getWidth();
+
+    /**
+     * @return the height of the viewed map (second coordinate).
+     */
+    public int getHeight();
+
+    /**
+     * @return true iff the viewed map is cyclic.
+     */
+    public boolean isCyclic();
+
+    /**
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the [x][y] value of the map, or -1 if (x, y) is outside the map.
+     */
+    public int getPixel(int x, int y);
+
+    /**
+     * @param index a linear cell index, x * getHeight() + y.
+     * @return the value of that cell.
+     */
+    public int getPixelAt(int index);
+
+    /**
+     * @param x the x coordinate
+     * @return a read-only buffer over the column [x][0..getHeight()-1] (position 0 is y=0).
+     */
+    public IntBuffer column(int x);
+
+    /**
+     * @return a read-only buffer over all cells, in linear index order.
+     */
+    public IntBuffer cells();
+}
@@ -0,0 +1,66 @@
+package assignments.Ex3;
+
+/**
+ * An axis aligned rectangle of map cells: x in [getX(), getX()+getWidth()) and
+ * y in [getY(), getY()+getHeight()).
+ */
+public final class MapRegion {
+    private final int _x, _y, _width, _height;
+
+    /**
+     * @param x first column
+     * @param y first row
+     * @param width number of columns
+     * @param height number of rows
+     */
+    public MapRegion(int x, int y, int width, int height) {
+        _x = x;
+        _y = y;
+        _width = width;
+        _height = height;
+    }
+
+    public int getX() {
+        return _x;
+    }
+
+    public int getY() {
+        return _y;
+    }
+
+    public int getWidth() {
+        return _width;
+    }
+
+    public int getHeight() {
+        return _height;
+    }
+
+    /**
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return true iff (x, y) lies inside this region
+     */
+    public boolean contains(int x, int y) {
+        return x >= _x && x < _x + _width && y >= _y && y < _y + _height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof MapRegion)) {
+            return false;
+        }
+        MapRegion r = (MapRegion) o;
+        return _x == r._x && _y == r._y && _width == r._width && _height == r._height;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((_x * 31 + _y) * 31 + _width) * 31 + _height;
+    }
+
+    @Override
+    public String toString() {
+        return _x + "," + _y + " " + _width + "x" + _height;
+    }
+}
@@ -3,220 +3,586 @@ package assignments.Ex3;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.util.function.IntUnaryOperator;
+
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.*;
 
-class MapTestEx3 {
-
-    private static final int WALL = 1;
+class MapTestEx3 extends AbstractMap2DTest {
 
-    private static Pixel2D p(int x, int y) {
-        return new Index2D(x, y);
+    @Override
+    protected Map2D newMap(int w, int h, int v) {
+        return new Map(w, h, v);
     }
 
-    private static int[][] wrapBoard3x3() {
-        return new int[][]{
-                {0, 1, 0},
-                {1, 1, 1},
-                {0, 1, 0}
-        };
+    @Override
+    protected Map2D newMap(int[][] data) {
+        return new Map(data);
     }
 
-    private static void assertNeighborStep(Pixel2D a, Pixel2D b, int w, int h, boolean cyclic) {
-        int dx = Math.abs(a.getX() - b.getX());
-        int dy = Math.abs(a.getY() - b.getY());
-
-        if (cyclic) {
-            dx = Math.min(dx, w - dx);
-            dy = Math.min(dy, h - dy);
-        }
-
-        assertEquals(1, dx + dy, "Consecutive steps in the path are not neighbors");
+    // Verifies init rejects negative dimensions and sizes that overflow an int.
+    @Test
+    void testInitRejectsIllegalSize() {
+        assertThrows(RuntimeException.class, () -> new Map(-2, -3, 0));
+        assertThrows(RuntimeException.class, () -> new Map(4, -1, 0));
+        assertThrows(RuntimeException.class, () -> new Map(1 << 16, 1 << 16, 0));
+        Map m = new Map(2, 2, 5);
+        assertThrows(RuntimeException.class, () -> m.init(-1, 3, 0));
+        assertEquals(2, m.getWidth());
+        assertEquals(5, m.getPixel(1, 1));
     }
 
-    private static void assertValidPath(Map2D m, Pixel2D[] path, int obsColor, boolean cyclic) {
-        assertNotNull(path);
-        assertTrue(path.length >= 1);
-
-        int w = m.getWidth();
-        int h = m.getHeight();
-
-        for (Pixel2D step : path) {
-            assertNotNull(step);
-            assertTrue(m.isInside(step));
-            assertNotEquals(obsColor, m.getPixel(step));
+    // Verifies span drawing keeps the Zobrist hash and dirty tiles exact once both are being tracked.
+    @Test
+    void testSpanDrawingTracksHashAndDirtyTiles() {
+        Map m = new Map(40, 30, 0);
+        m.zobristHash();
+        m.drainDirtyRegions();
+        m.drawRect(p(3, 5), p(6, 20), WALL);
+        m.drawCircle(p(30, 25), 4, 3, true);
+        assertEquals(new Map(m.getMap()).zobristHash(), m.zobristHash());
+
+        boolean[][] covered = new boolean[40][30];
+        for (MapRegion r : m.drainDirtyRegions()) {
+            for (int x = r.getX(); x < r.getX() + r.getWidth(); x++) {
+                for (int y = r.getY(); y < r.getY() + r.getHeight(); y++) {
+                    covered[x][y] = true;
+                }
+            }
         }
-
-        for (int i = 0; i < path.length - 1; i++) {
-            assertNeighborStep(path[i], path[i + 1], w, h, cyclic);
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 30; y++) {
+                if (m.getPixel(x, y) != 0) {
+                    assertTrue(covered[x][y], "changed cell outside the dirty regions: " + x + "," + y);
+                }
+            }
         }
+        assertFalse(covered[20][10]);
+        // Redrawing the same cells leaves the hash unchanged.
+        long h = m.zobristHash();
+        m.drawRect(p(3, 5), p(6, 20), WALL);
+        assertEquals(h, m.zobristHash());
     }
 
-    // Verifies setCyclic and isCyclic.
+    // Verifies linear cell indices address the same cells as (x, y) and getMap still builds the 2D copy.
     @Test
-    void testSetCyclicAndIsCyclic() {
-        Map2D m = new Map(3, 3, 0);
-
-        m.setCyclic(false);
-        assertFalse(m.isCyclic());
-
-        m.setCyclic(true);
-        assertTrue(m.isCyclic());
+    void testLinearIndexMatchesCoordinates() {
+        Map m = new Map(4, 3, 0);
+        m.setPixel(2, 1, 7);
+
+        int idx = m.index(2, 1);
+        assertEquals(12, m.size());
+        assertEquals(2, m.indexX(idx));
+        assertEquals(1, m.indexY(idx));
+        assertEquals(7, m.getPixelAt(idx));
+
+        m.setPixelAt(m.index(3, 2), 5);
+        int[][] arr = m.getMap();
+        assertEquals(5, arr[3][2]);
+        assertEquals(7, arr[2][1]);
+        assertEquals(4, arr.length);
+        assertEquals(3, arr[0].length);
     }
 
-    // Verifies fill returns 0 when old color equals new color.
+    // Verifies a view shares storage with its map and cannot be written through.
     @Test
-    void testFillSameColorReturnsZero() {
-        Map2D m = new Map(3, 3, 7);
-        int filled = m.fill(p(1, 1), 7);
-        assertEquals(0, filled);
-        assertEquals(7, m.getPixel(1, 1));
+    void testViewIsLiveAndReadOnly() {
+        Map m = new Map(3, 4, 0);
+        Map2DView v = m.view();
+
+        m.setPixel(1, 2, 5);
+        assertEquals(5, v.getPixel(1, 2));
+        assertEquals(5, v.getPixelAt(m.index(1, 2)));
+        assertEquals(5, v.column(1).get(2));
+        assertEquals(4, v.column(1).remaining());
+        assertEquals(-1, v.getPixel(3, 0));
+        assertTrue(v.cells().isReadOnly());
+        assertThrows(java.nio.ReadOnlyBufferException.class, () -> v.column(0).put(0, 1));
     }
 
-    // Verifies non-cyclic fill does not wrap across borders.
+    // Verifies equals and addMap2D between two Maps, and against another Map2D kind.
     @Test
-    void testFillNonCyclicNoWrap() {
-        Map2D m = new Map(wrapBoard3x3());
-        m.setCyclic(false);
+    void testEqualsAndAddBetweenMaps() {
+        Map a = new Map(new int[][]{{1, 2}, {3, 4}});
+        Map b = new Map(new int[][]{{1, 2}, {3, 4}});
+        assertEquals(a, b);
 
-        int filled = m.fill(p(0, 0), 9);
+        b.addMap2D(a);
+        assertEquals(8, b.getPixel(1, 1));
+        assertNotEquals(a, b);
 
-        assertEquals(1, filled);
-        assertEquals(9, m.getPixel(0, 0));
-        assertEquals(0, m.getPixel(2, 0));
-        assertEquals(0, m.getPixel(0, 2));
-        assertEquals(0, m.getPixel(2, 2));
+        a.addMap2D(new CompactMap(new int[][]{{1, 2}, {3, 4}}));
+        assertEquals(b, a);
     }
 
-    // Verifies cyclic fill wraps across borders.
+    // Verifies the version moves on writes and repeated path queries see walls added in between.
     @Test
-    void testFillCyclicWrapsEdges() {
-        Map2D m = new Map(wrapBoard3x3());
-        m.setCyclic(true);
+    @Timeout(value = 2, unit = SECONDS)
+    void testVersionInvalidatesCachedObstacles() {
+        Map m = new Map(5, 1, 0);
+        m.setCyclic(false);
+        long v0 = m.getVersion();
+
+        assertEquals(5, m.shortestPath(p(0, 0), p(4, 0), WALL).length);
+        assertEquals(v0, m.getVersion());
 
-        int filled = m.fill(p(0, 0), 9);
+        m.setPixel(2, 0, WALL);
+        assertNotEquals(v0, m.getVersion());
+        assertNull(m.shortestPath(p(0, 0), p(4, 0), WALL));
+        assertEquals(-1, m.allDistance(p(0, 0), WALL).getPixel(4, 0));
 
-        assertEquals(4, filled);
-        assertEquals(9, m.getPixel(0, 0));
-        assertEquals(9, m.getPixel(2, 0));
-        assertEquals(9, m.getPixel(0, 2));
-        assertEquals(9, m.getPixel(2, 2));
+        m.fill(p(2, 0), 0);
+        assertEquals(4, m.allDistance(p(0, 0), WALL).getPixel(4, 0));
     }
 
-    // Verifies shortestPath returns null in non-cyclic mode when border wrap is needed.
+    // Verifies init, addMap2D, mul and equals on a map large enough to be split across threads.
     @Test
-    @Timeout(value = 2, unit = SECONDS)
-    void testShortestPathNonCyclicNoWrapReturnsNull() {
-        Map2D m = new Map(wrapBoard3x3());
-        m.setCyclic(false);
-
-        Pixel2D[] path = m.shortestPath(p(0, 0), p(2, 0), WALL);
+    @Timeout(value = 10, unit = SECONDS)
+    void testBulkOpsOnLargeMap() {
+        Map a = new Map(700, 500, 3);
+        Map b = new Map(700, 500, 3);
+        assertEquals(a, b);
+
+        b.setPixel(699, 499, -8);
+        assertNotEquals(a, b);
+
+        a.addMap2D(b);
+        assertEquals(6, a.getPixel(0, 0));
+        assertEquals(-5, a.getPixel(699, 499));
+
+        a.mul(0.5);
+        assertEquals(3, a.getPixel(350, 250));
+        assertEquals(-2, a.getPixel(699, 499));
+    }
 
-        assertNull(path);
+    // Verifies the incremental hash matches a fresh hash after edits and backs hashCode.
+    @Test
+    void testZobristHashTracksEdits() {
+        Map m = new Map(6, 5, 0);
+        long empty = m.zobristHash();
+
+        m.setPixel(2, 3, WALL);
+        m.drawRect(p(0, 0), p(1, 1), 3);
+        m.fill(p(5, 4), 7);
+        assertNotEquals(empty, m.zobristHash());
+
+        Map copy = new Map(m.getMap());
+        assertEquals(copy.zobristHash(), m.zobristHash());
+        assertEquals(copy.hashCode(), m.hashCode());
+        assertEquals(copy, m);
+
+        m.fill(p(5, 4), 0);
+        m.drawRect(p(0, 0), p(1, 1), 0);
+        m.setPixel(2, 3, 0);
+        assertEquals(empty, m.zobristHash());
+
+        java.util.HashSet<Map> seen = new java.util.HashSet<>();
+        seen.add(new Map(6, 5, 0));
+        assertTrue(seen.contains(m));
     }
 
-    // Verifies shortestPath uses border wrapping in cyclic mode.
+    // Verifies a map survives Java serialization, including negative values and the cyclic flag.
     @Test
-    @Timeout(value = 2, unit = SECONDS)
-    void testShortestPathCyclicWrapDirectNeighbor() {
-        Map2D m = new Map(wrapBoard3x3());
-        m.setCyclic(true);
+    void testSerializationRoundTrip() throws Exception {
+        Map m = new Map(50, 40, 0);
+        m.setCyclic(false);
+        m.drawRect(p(3, 3), p(20, 10), WALL);
+        m.setPixel(49, 39, -7);
+        m.setPixel(0, 0, Integer.MAX_VALUE);
 
-        Pixel2D[] path = m.shortestPath(p(0, 0), p(2, 0), WALL);
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes)) {
+            out.writeObject(m);
+        }
+        // Runs of equal cells keep the stream far below 4 bytes per cell.
+        assertTrue(bytes.size() < 500);
 
-        assertNotNull(path);
-        assertEquals(2, path.length);
-        assertEquals(p(0, 0), path[0]);
-        assertEquals(p(2, 0), path[1]);
+        Map back;
+        try (java.io.ObjectInputStream in = new java.io.ObjectInputStream(
+                new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+            back = (Map) in.readObject();
+        }
+        assertEquals(m, back);
+        assertFalse(back.isCyclic());
+        assertEquals(-7, back.getPixel(49, 39));
+        assertEquals(m.zobristHash(), back.zobristHash());
+    }
 
-        assertValidPath(m, path, WALL, true);
+    // Verifies readBoard rejects data with an unknown format version.
+    @Test
+    void testReadBoardRejectsUnknownVersion() {
+        byte[] bad = {99, 0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 0};
+        assertThrows(java.io.IOException.class, () -> Map.readBoard(
+                new java.io.DataInputStream(new java.io.ByteArrayInputStream(bad))));
     }
 
-    // Verifies shortestPath avoids obstacles and returns a minimal-length path.
+    // Verifies empty (0 x N and N x 0) maps round-trip through writeBoard and serialization, like any other size.
     @Test
-    @Timeout(value = 2, unit = SECONDS)
-    void testShortestPathAvoidsObstaclesAndIsMinimal() {
-        int[][] arr = new int[5][5];
-        for (int y = 0; y < 5; y++) {
-            arr[2][y] = WALL;
+    void testEmptyMapRoundTrip() throws Exception {
+        for (Map m : new Map[] {new Map(0, 5, 0), new Map(3, 0, 0)}) {
+            java.io.ByteArrayOutputStream board = new java.io.ByteArrayOutputStream();
+            m.writeBoard(new java.io.DataOutputStream(board));
+            Map back = Map.readBoard(new java.io.DataInputStream(new java.io.ByteArrayInputStream(board.toByteArray())));
+            assertEquals(m.getWidth(), back.getWidth());
+            assertEquals(m.getHeight(), back.getHeight());
+            assertEquals(m, back);
+
+            java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+            try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes)) {
+                out.writeObject(m);
+            }
+            try (java.io.ObjectInputStream in = new java.io.ObjectInputStream(
+                    new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+                assertEquals(m, in.readObject());
+            }
         }
-        arr[2][2] = 0;
+    }
 
-        Map2D m = new Map(arr);
-        m.setCyclic(false);
+    // Verifies readBoard rejects a negative dimension and a varint whose fifth byte overflows an int.
+    @Test
+    void testReadBoardRejectsCorruptData() {
+        byte[] negative = {1, -1, -1, -1, -1, 0, 0, 0, 1, 0};
+        assertThrows(java.io.StreamCorruptedException.class, () -> Map.readBoard(
+                new java.io.DataInputStream(new java.io.ByteArrayInputStream(negative))));
+        // Run length 2^32 + 1 would silently truncate to 1.
+        byte[] overflow = {1, 0, 0, 0, 1, 0, 0, 0, 1, 0, (byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10, 0};
+        assertThrows(java.io.StreamCorruptedException.class, () -> Map.readBoard(
+                new java.io.DataInputStream(new java.io.ByteArrayInputStream(overflow))));
+    }
 
-        Pixel2D start = p(0, 2);
-        Pixel2D target = p(4, 2);
+    // Verifies dirty regions cover edits, merge adjacent tiles and are cleared by draining.
+    @Test
+    void testDrainDirtyRegions() {
+        Map m = new Map(20, 20, 0);
+        java.util.List<MapRegion> all = m.drainDirtyRegions();
+        assertEquals(1, all.size());
+        assertEquals(new MapRegion(0, 0, 20, 20), all.get(0));
+        assertTrue(m.drainDirtyRegions().isEmpty());
+
+        m.setPixel(1, 1, 0);
+        assertTrue(m.drainDirtyRegions().isEmpty());
+
+        m.setPixel(1, 1, WALL);
+        m.drawLine(p(17, 2), p(17, 12), WALL);
+        java.util.List<MapRegion> regions = m.drainDirtyRegions();
+        assertEquals(2, regions.size());
+        assertTrue(regions.contains(new MapRegion(0, 0, 8, 8)));
+        assertTrue(regions.contains(new MapRegion(16, 0, 4, 16)));
+
+        m.mul(2);
+        assertEquals(new MapRegion(0, 0, 20, 20), m.drainDirtyRegions().get(0));
+    }
 
-        Pixel2D[] path = m.shortestPath(start, target, WALL);
+    // Verifies the integer rasterizers: line pixels, circle shape, clipping and torus wrapping.
+    @Test
+    void testIntegerRasterizers() {
+        Map m = new Map(10, 10, 0);
+        m.drawLine(p(0, 0), p(9, 3), WALL);
+        int count = 0;
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                if (m.getPixel(x, y) == WALL) count++;
+            }
+        }
+        assertEquals(10, count);
+        assertEquals(WALL, m.getPixel(9, 3));
+
+        m = new Map(10, 10, 0);
+        m.drawCircle(p(5, 5), 2, WALL);
+        assertEquals(WALL, m.getPixel(5, 3));
+        assertEquals(WALL, m.getPixel(6, 6));
+        assertEquals(0, m.getPixel(7, 7));
+
+        m = new Map(10, 10, 0);
+        m.drawRect(p(-3, 8), p(1, 12), WALL);
+        assertEquals(WALL, m.getPixel(0, 9));
+        assertEquals(0, m.getPixel(9, 9));
+        assertEquals(0, m.getPixel(0, 0));
+
+        m.drawRect(p(-3, 8), p(1, 12), 3, true);
+        assertEquals(3, m.getPixel(8, 9));
+        assertEquals(3, m.getPixel(0, 2));
+        assertEquals(0, m.getPixel(6, 5));
+    }
 
-        assertNotNull(path);
-        assertEquals(start, path[0]);
-        assertEquals(target, path[path.length - 1]);
+    // Verifies batch drawing matches drawing the shapes one by one.
+    @Test
+    void testBatchDrawing() {
+        Map one = new Map(12, 12, 0);
+        Map batch = new Map(12, 12, 0);
+        int[] x1 = {0, 5, 11};
+        int[] y1 = {0, 9, 2};
+        int[] x2 = {4, 1, 14};
+        int[] y2 = {7, 3, 2};
+        for (int i = 0; i < x1.length; i++) {
+            one.drawLine(p(x1[i], y1[i]), p(x2[i], y2[i]), WALL, true);
+        }
+        for (int i = 0; i < x1.length; i++) {
+            one.drawRect(p(x1[i], y1[i]), p(x1[i] + 1, y1[i] + 1), 3, true);
+        }
+        for (int i = 0; i < x1.length; i++) {
+            one.drawCircle(p(x2[i], y2[i]), 1.5, 5, true);
+        }
+        batch.drawLines(x1, y1, x2, y2, WALL, true);
+        batch.drawRects(x1, y1, new int[]{1, 6, 12}, new int[]{1, 10, 3}, 3, true);
+        batch.drawCircles(x2, y2, new double[]{1.5, 1.5, 1.5}, 5, true);
+        assertEquals(one, batch);
+        assertThrows(IllegalArgumentException.class, () -> batch.drawLines(x1, y1, x2, new int[1], WALL, false));
+    }
 
-        assertValidPath(m, path, WALL, false);
-        assertEquals(5, path.length);
+    // Verifies searches on maps of different sizes can share the per-thread BFS scratch buffers.
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testBfsScratchReuseAcrossMaps() {
+        Map big = new Map(40, 30, 0);
+        big.setCyclic(false);
+        Map small = new Map(wrapBoard3x3());
+        small.setCyclic(true);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(40 + 30 - 1, big.shortestPath(p(0, 0), p(39, 29), WALL).length);
+            assertEquals(2, small.shortestPath(p(0, 0), p(2, 2), WALL).length - 1);
+            assertNull(small.shortestPath(p(0, 0), p(1, 0), WALL));
+            assertEquals(68, big.allDistance(p(0, 0), WALL).getPixel(39, 29));
+        }
     }
 
-    // Verifies allDistance returns null when the start point is an obstacle.
+    // Verifies the bidirectional engine finds a path as short as BFS while visiting fewer cells.
     @Test
     @Timeout(value = 2, unit = SECONDS)
-    void testAllDistanceStartOnObstacleReturnsNull() {
-        int[][] arr = new int[][]{
-                {0, 0, 0},
-                {0, WALL, 0},
-                {0, 0, 0}
-        };
-        Map2D m = new Map(arr);
-        m.setCyclic(false);
+    void testBidirectionalShortestPath() {
+        Map m = new Map(101, 101, 0);
+        m.drawLine(p(50, 10), p(50, 90), WALL);
+        m.setCyclic(true);
 
-        Map2D d = m.allDistance(p(1, 1), WALL);
-        assertNull(d);
+        Pixel2D[] bfs = m.shortestPath(p(40, 50), p(60, 50), WALL, true, PathEngine.BFS);
+        int bfsVisited = GridBfs.get().queued();
+        Pixel2D[] bidi = m.shortestPath(p(40, 50), p(60, 50), WALL, true, PathEngine.BIDIRECTIONAL);
+        int bidiVisited = GridBfs.get().queued();
+
+        assertEquals(bfs.length, bidi.length);
+        assertValidPath(m, bidi, WALL, true);
+        assertEquals(p(40, 50), bidi[0]);
+        assertEquals(p(60, 50), bidi[bidi.length - 1]);
+        assertTrue(bidiVisited < bfsVisited);
+
+        m.setPathEngine(PathEngine.BIDIRECTIONAL);
+        assertEquals(PathEngine.BIDIRECTIONAL, m.getPathEngine());
+        assertNull(m.shortestPath(p(40, 50), p(50, 50), WALL));
+        assertEquals(1, m.shortestPath(p(3, 3), p(3, 3), WALL).length);
     }
 
-    // Verifies allDistance in non-cyclic mode with a single obstacle.
+    // Verifies a bidirectional search after a larger one-sided BFS on the same thread ignores stale backward stamps.
     @Test
     @Timeout(value = 2, unit = SECONDS)
-    void testAllDistanceNonCyclicBasic() {
-        int[][] arr = new int[][]{
-                {0, 0, 0},
-                {0, WALL, 0},
-                {0, 0, 0}
-        };
-        Map2D m = new Map(arr);
-        m.setCyclic(false);
+    void testBidirectionalAfterScratchGrowth() throws Exception {
+        Pixel2D[][] found = new Pixel2D[1][];
+        // A fresh thread has fresh scratch arrays, whatever other tests ran before.
+        Thread t = new Thread(() -> {
+            Map small = new Map(7, 7, 0);
+            small.drawLine(p(3, 0), p(3, 5), WALL);
+            // Two searches leave backward stamps of generation 2; growing the scratch restarts the count.
+            small.shortestPath(p(0, 0), p(6, 0), WALL, false, PathEngine.BIDIRECTIONAL);
+            small.shortestPath(p(6, 6), p(0, 6), WALL, false, PathEngine.BIDIRECTIONAL);
+            new Map(120, 120, 0).shortestPath(p(0, 0), p(119, 119), WALL, false, PathEngine.BFS);
+            found[0] = small.shortestPath(p(0, 0), p(6, 0), WALL, false, PathEngine.BIDIRECTIONAL);
+        });
+        t.setDaemon(true);
+        t.start();
+        t.join(1500);
+        assertFalse(t.isAlive());
+        assertValidPath(new Map(7, 7, 0), found[0], WALL, false);
+        assertEquals(19, found[0].length);
+    }
 
-        Map2D d = m.allDistance(p(0, 0), WALL);
-        assertNotNull(d);
+    // Verifies A* returns BFS-length paths, uses the wrap-around heuristic and expands fewer cells.
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testAStarShortestPath() {
+        Map m = new Map(101, 101, 0);
+        m.drawLine(p(50, 10), p(50, 90), WALL);
+
+        Pixel2D[] bfs = m.shortestPath(p(40, 50), p(60, 50), WALL, false, PathEngine.BFS);
+        int bfsVisited = GridBfs.get().queued();
+        Pixel2D[] astar = m.shortestPath(p(40, 50), p(60, 50), WALL, false, PathEngine.ASTAR);
+
+        assertEquals(bfs.length, astar.length);
+        assertValidPath(m, astar, WALL, false);
+        assertEquals(p(40, 50), astar[0]);
+        assertEquals(p(60, 50), astar[astar.length - 1]);
+        assertTrue(GridAStar.get().expanded() < bfsVisited);
+
+        assertEquals(3, GridAStar.heuristic(0, 0, 99, 2, 100, 100, true));
+        assertEquals(101, GridAStar.heuristic(0, 0, 99, 2, 100, 100, false));
+        Pixel2D[] wrap = m.shortestPath(p(0, 0), p(100, 100), WALL, true, PathEngine.ASTAR);
+        assertEquals(3, wrap.length);
+        assertValidPath(m, wrap, WALL, true);
+
+        m.setPathEngine(PathEngine.ASTAR);
+        assertNull(m.shortestPath(p(40, 50), p(50, 50), WALL));
+        assertEquals(1, m.shortestPath(p(3, 3), p(3, 3), WALL).length);
+    }
 
-        assertEquals(0, d.getPixel(0, 0));
-        assertEquals(1, d.getPixel(1, 0));
-        assertEquals(2, d.getPixel(2, 0));
+    // Verifies JPS expands jump points back into a full, BFS-length path, also across the wrap seam.
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testJpsShortestPath() {
+        Map m = new Map(300, 300, 0);
+        m.drawLine(p(150, 20), p(150, 299), WALL);
+        m.drawLine(p(40, 150), p(149, 150), WALL);
+
+        Pixel2D[] bfs = m.shortestPath(p(100, 200), p(200, 200), WALL, false, PathEngine.BFS);
+        Pixel2D[] jps = m.shortestPath(p(100, 200), p(200, 200), WALL, false, PathEngine.JPS);
+        assertEquals(bfs.length, jps.length);
+        assertValidPath(m, jps, WALL, false);
+        assertEquals(p(100, 200), jps[0]);
+        assertEquals(p(200, 200), jps[jps.length - 1]);
+        assertTrue(GridJps.get().expanded() < 50);
+
+        Pixel2D[] wrap = m.shortestPath(p(100, 200), p(200, 200), WALL, true, PathEngine.JPS);
+        assertEquals(m.shortestPath(p(100, 200), p(200, 200), WALL, true, PathEngine.BFS).length, wrap.length);
+        assertValidPath(m, wrap, WALL, true);
+
+        m.setPathEngine(PathEngine.JPS);
+        assertNull(m.shortestPath(p(100, 200), p(150, 200), WALL));
+        assertEquals(1, m.shortestPath(p(3, 3), p(3, 3), WALL).length);
+    }
 
-        assertEquals(1, d.getPixel(0, 1));
-        assertEquals(-1, d.getPixel(1, 1));
+    // Verifies multi-source allDistance equals the per-cell minimum of single-source runs, cyclic or not.
+    @Test
+    void testMultiSourceAllDistance() {
+        for (boolean cyclic : new boolean[] {false, true}) {
+            Map m = new Map(25, 18, 0);
+            m.drawLine(p(12, 0), p(12, 14), WALL);
+            Pixel2D[] ghosts = {p(2, 3), p(20, 15), p(12, 5), null, p(22, 2)};
+
+            Map nearest = new Map(25, 18, 0);
+            Map2D heat = m.allDistance(ghosts, WALL, cyclic, nearest);
+            assertEquals(heat, m.allDistance(ghosts, WALL, cyclic));
+
+            for (int x = 0; x < 25; x++) {
+                for (int y = 0; y < 18; y++) {
+                    int best = -1;
+                    for (Pixel2D g : ghosts) {
+                        Map2D d = g == null ? null : m.allDistance(g, WALL, cyclic);
+                        int v = d == null ? -1 : d.getPixel(x, y);
+                        if (v >= 0 && (best < 0 || v < best)) {
+                            best = v;
+                        }
+                    }
+                    assertEquals(best, heat.getPixel(x, y));
+                    int owner = nearest.getPixel(x, y);
+                    if (best < 0) {
+                        assertEquals(-1, owner);
+                    } else {
+                        assertEquals(best, m.allDistance(ghosts[owner], WALL, cyclic).getPixel(x, y));
+                    }
+                }
+            }
+        }
+        Map m = new Map(5, 5, 0);
+        m.setPixel(1, 1, WALL);
+        assertNull(m.allDistance(new Pixel2D[] {p(1, 1), null}, WALL));
+        assertThrows(RuntimeException.class, () -> m.allDistance(new Pixel2D[] {p(0, 0)}, WALL, true, new Map(4, 5, 0)));
+    }
 
-        assertEquals(2, d.getPixel(0, 2));
-        assertEquals(4, d.getPixel(2, 2));
+    // Verifies weighted paths avoid expensive cells, respect walls and wrap, with a color table or a cost layer.
+    @Test
+    void testWeightedPath() {
+        final int DANGER = 7;
+        Map m = new Map(20, 9, 0);
+        m.drawLine(p(0, 4), p(19, 4), DANGER);
+        m.drawLine(p(10, 0), p(10, 5), WALL);
+        IntUnaryOperator cost = c -> c == WALL ? -1 : c == DANGER ? 20 : 1;
+
+        WeightedPath soft = m.weightedPath(p(2, 2), p(18, 2), cost, false);
+        assertEquals(m.shortestPath(p(2, 2), p(18, 2), WALL, false).length - 1, soft.getPath().length - 1);
+        assertEquals(soft.getPath().length - 1 + 19 * 2, soft.getCost());
+        WeightedPath wrap = m.weightedPath(p(2, 2), p(18, 2), cost, true);
+        assertEquals(4, wrap.getCost());
+        assertEquals(5, wrap.getPath().length);
+
+        Map layer = new Map(20, 9, 1);
+        layer.drawLine(p(10, 0), p(10, 8), -1);
+        assertNull(m.weightedPath(p(2, 2), p(18, 2), layer, false));
+        layer.setPixel(10, 8, 0);
+        WeightedPath gap = m.weightedPath(p(2, 2), p(18, 2), layer, false);
+        assertEquals(gap.getPath().length - 2, gap.getCost());
+        assertNull(m.weightedPath(p(2, 2), p(10, 0), cost, false));
+        assertEquals(0, m.weightedPath(p(2, 2), p(2, 2), cost, false).getCost());
+        assertThrows(RuntimeException.class, () -> m.weightedPath(p(0, 0), p(1, 1), new Map(3, 3, 1), false));
     }
 
-    // Verifies allDistance in cyclic mode prefers wrapped shorter routes.
+    // Verifies nearestTargets returns the k nearest matching cells with correct distances and first steps, wrapping or not.
     @Test
     @Timeout(value = 2, unit = SECONDS)
-    void testAllDistanceCyclicWrapShorter() {
-        Map2D m = new Map(wrapBoard3x3());
-        m.setCyclic(true);
-
-        Map2D d = m.allDistance(p(0, 0), WALL);
-        assertNotNull(d);
-
-        assertEquals(0, d.getPixel(0, 0));
-        assertEquals(1, d.getPixel(2, 0));
-        assertEquals(1, d.getPixel(0, 2));
-        assertEquals(2, d.getPixel(2, 2));
+    void testNearestTargets() {
+        final int FOOD = 3;
+        java.util.Random rnd = new java.util.Random(25);
+        for (int t = 0; t < 40; t++) {
+            boolean cyclic = t % 2 == 0;
+            Map m = new Map(12 + rnd.nextInt(20), 8 + rnd.nextInt(20), 0);
+            for (int i = 0; i < m.size(); i++) {
+                int r = rnd.nextInt(10);
+                m.setPixelAt(i, r < 3 ? WALL : r < 5 ? FOOD : 0);
+            }
+            Pixel2D start = p(rnd.nextInt(m.getWidth()), rnd.nextInt(m.getHeight()));
+            m.setPixel(start.getX(), start.getY(), FOOD);
+            Map2D dist = m.allDistance(start, WALL, cyclic);
+            int k = 1 + rnd.nextInt(12);
+            NearestTargets near = m.nearestTargets(start, c -> c == FOOD, k, WALL, cyclic);
+
+            int reachable = 0;
+            for (int x = 0; x < m.getWidth(); x++) {
+                for (int y = 0; y < m.getHeight(); y++) {
+                    if (m.getPixel(x, y) == FOOD && dist.getPixel(x, y) > 0) {
+                        reachable++;
+                    }
+                }
+            }
+            assertEquals(Math.min(k, reachable), near.size());
+            int last = 0;
+            for (int i = 0; i < near.size(); i++) {
+                Pixel2D target = near.getTarget(i);
+                int d = near.getDistance(i);
+                assertEquals(FOOD, m.getPixel(target));
+                assertEquals(dist.getPixel(target), d);
+                assertTrue(d >= last);
+                last = d;
+                Pixel2D step = near.getFirstStep(i);
+                assertEquals(1, dist.getPixel(step));
+                assertEquals(d - 1, m.allDistance(step, WALL, cyclic).getPixel(target));
+            }
+            if (near.size() == k) {
+                // Nothing strictly closer than the farthest result was left out.
+                int closer = 0;
+                for (int x = 0; x < m.getWidth(); x++) {
+                    for (int y = 0; y < m.getHeight(); y++) {
+                        int d = dist.getPixel(x, y);
+                        if (m.getPixel(x, y) == FOOD && d > 0 && d < last) {
+                            closer++;
+                        }
+                    }
+                }
+                assertTrue(closer < k);
+            }
+        }
 
-        assertEquals(-1, d.getPixel(1, 0));
-        assertEquals(-1, d.getPixel(1, 1));
-        assertEquals(-1, d.getPixel(1, 2));
+        Map m = new Map(10, 5, 0);
+        m.setPixel(8, 2, FOOD);
+        m.setPixel(4, 2, FOOD);
+        NearestTargets flat = m.nearestTargets(p(0, 2), c -> c == FOOD, 5, WALL, false);
+        assertEquals(2, flat.size());
+        assertEquals(p(4, 2), flat.getTarget(0));
+        assertEquals(p(1, 2), flat.getFirstStep(1));
+        NearestTargets wrap = m.nearestTargets(p(0, 2), c -> c == FOOD, 1, WALL, true);
+        assertEquals(p(8, 2), wrap.getTarget(0));
+        assertEquals(2, wrap.getDistance(0));
+        assertEquals(p(9, 2), wrap.getFirstStep(0));
+        assertEquals(0, m.nearestTargets(p(0, 2), c -> c == FOOD, 5, 3, WALL, false).size());
+        assertEquals(1, m.nearestTargets(p(0, 2), c -> c == FOOD, 5, 4, WALL, false).size());
+        m.setPixel(0, 2, WALL);
+        assertNull(m.nearestTargets(p(0, 2), c -> c == FOOD, 1, WALL, false));
+        assertThrows(RuntimeException.class, () -> flat.getTarget(2));
     }
 }
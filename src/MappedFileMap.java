@@ -0,0 +1,248 @@
+package assignments.Ex3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A Map2D backed by a memory-mapped file, for boards larger than the heap.
+ * The file starts with a fixed header (magic, format version, width, height, cyclic flag)
+ * followed by the cells as 4-byte ints, column by column (x * height + y).
+ * Opening a file only maps it; the OS pages cells in on demand while fill/allDistance run,
+ * and writes go straight to the mapping, so there is no serialize pass. flush() forces them to disk.
+ * The file is mapped in 1GB segments, since one MappedByteBuffer is limited to 2GB.
+ * Distance maps and path search scratch are as large as the board, so they also live in
+ * (temporary) files, next to the board file, and never on the heap.
+ */
+public class MappedFileMap extends AbstractMap2D implements Closeable {
+    private static final int MAGIC = 0x4D415032; // "MAP2"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int CYCLIC_OFFSET = 16;
+    private static final int SEG_SHIFT = 28; // 2^28 cells (1GB) per mapped segment
+    private static final int SEG_MASK = (1 << SEG_SHIFT) - 1;
+
+    private final FileChannel _channel;
+    private final Path _dir;
+    // Temporary maps are deleted on close, so there is nothing to flush.
+    private boolean _temp;
+    private MappedByteBuffer _header;
+    private MappedByteBuffer[] _segments;
+
+    private MappedFileMap(FileChannel channel, Path dir) {
+        _channel = channel;
+        _dir = dir;
+    }
+
+    /**
+     * Creates (or overwrites) a board file of size w*h, filled with value v.
+     * @param file the board file
+     * @param w width
+     * @param h height
+     * @param v initial value
+     * @return the mapped board
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedFileMap create(Path file, int w, int h, int v) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return create(ch, file.toAbsolutePath().getParent(), w, h, v);
+    }
+
+    /**
+     * Creates a board in a new temporary file in dir, deleted when the board is closed
+     * (on most systems the file is unlinked at once, so it also goes away if it is never closed).
+     * @param dir directory for the file
+     * @param w width
+     * @param h height
+     * @param v initial value
+     * @return the mapped board
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static MappedFileMap createTemp(Path dir, int w, int h, int v) throws IOException {
+        Path file = Files.createTempFile(dir, "map", ".tmp");
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        MappedFileMap ans = create(ch, dir, w, h, v);
+        ans._temp = true;
+        return ans;
+    }
+
+    private static MappedFileMap create(FileChannel ch, Path dir, int w, int h, int v) throws IOException {
+        MappedFileMap ans = new MappedFileMap(ch, dir);
+        try {
+            ans.init(w, h, v);
+        } catch (RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+        return ans;
+    }
+
+    /**
+     * Opens an existing board file, reading its dimensions and cyclic flag from the header.
+     * @param file the board file
+     * @return the mapped board
+     * @throws IOException if the file cannot be mapped or is not a board file
+     */
+    public static MappedFileMap open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedFileMap ans = new MappedFileMap(ch, file.toAbsolutePath().getParent());
+        try {
+            if (ch.size() < HEADER_SIZE) {
+                throw new IOException("not a map file: " + file);
+            }
+            MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("not a map file (or unsupported version): " + file);
+            }
+            int w = header.getInt(8);
+            int h = header.getInt(12);
+            if (w < 0 || h < 0 || (long) w * h > Integer.MAX_VALUE) {
+                throw new IOException("illegal map size " + w + "x" + h + ": " + file);
+            }
+            if (ch.size() < HEADER_SIZE + (long) w * h * Integer.BYTES) {
+                throw new IOException("truncated map file: " + file);
+            }
+            ans._header = header;
+            ans._width = w;
+            ans._height = h;
+            ans._cyclic = header.get(CYCLIC_OFFSET) != 0;
+            ans.mapCells(w, h);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+        return ans;
+    }
+
+    /**
+     * Sets the cyclic flag for this map, and records it in the file header.
+     * @param cyclic true to enable wrapping, false to disable
+     */
+    @Override
+    public void setCyclic(boolean cyclic) {
+        super.setCyclic(cyclic);
+        if (_header != null) {
+            _header.put(CYCLIC_OFFSET, (byte) (cyclic ? 1 : 0));
+        }
+    }
+
+    /**
+     * Forces all changes made to the mapping out to the file.
+     */
+    public void flush() {
+        _header.force();
+        for (MappedByteBuffer seg : _segments) {
+            seg.force();
+        }
+    }
+
+    /**
+     * Flushes the map and closes the underlying file.
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (_channel.isOpen()) {
+            if (!_temp) {
+                flush();
+            }
+            _channel.close();
+        }
+    }
+
+    @Override
+    protected void allocate(int w, int h, int v) {
+        long n = (long) w * h;
+        if (w < 0 || h < 0 || n > Integer.MAX_VALUE) {
+            throw new RuntimeException("illegal map size: " + w + "x" + h);
+        }
+        try {
+            // Drop old cells so a re-init never sees stale data.
+            _channel.truncate(0);
+            _header = _channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            _header.order(ByteOrder.LITTLE_ENDIAN);
+            _header.putInt(0, MAGIC);
+            _header.putInt(4, VERSION);
+            _header.putInt(8, w);
+            _header.putInt(12, h);
+            _header.put(CYCLIC_OFFSET, (byte) (_cyclic ? 1 : 0));
+            mapCells(w, h);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Newly mapped file space reads as zero.
+        if (v != 0) {
+            for (int i = 0; i < n; i++) {
+                set(i, v);
+            }
+        }
+    }
+
+    @Override
+    protected int get(int index) {
+        return _segments[index >>> SEG_SHIFT].getInt((index & SEG_MASK) << 2);
+    }
+
+    @Override
+    protected void set(int index, int v) {
+        _segments[index >>> SEG_SHIFT].putInt((index & SEG_MASK) << 2, v);
+    }
+
+    /**
+     * Computes the shortest path with its step marks in a temporary file instead of on the heap.
+     * @param p1 start point
+     * @param p2 end point
+     * @param obsColor obstacle color
+     * @param cyclic allow wrapping
+     * @return array of points representing the path, or null if no path
+     */
+    @Override
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        if (!isInside(p1) || !isInside(p2)) {
+            return null;
+        }
+        try (MappedFileMap from = createTemp(_dir, _width, _height, 0)) {
+            return shortestPath(p1, p2, obsColor, cyclic, from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Distance maps are as large as the board, so they go to a temporary file next to it
+     * (see createTemp); close the result to release it.
+     */
+    @Override
+    protected AbstractMap2D newMap(int w, int h, int v) {
+        try {
+            return createTemp(_dir, w, h, v);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the cell area of a w*h board (after the header) in segments of 2^SEG_SHIFT cells.
+     */
+    private void mapCells(int w, int h) throws IOException {
+        long n = (long) w * h;
+        int count = (int) ((n + SEG_MASK) >>> SEG_SHIFT);
+        _segments = new MappedByteBuffer[count];
+        for (int s = 0; s < count; s++) {
+            long first = (long) s << SEG_SHIFT;
+            long cells = Math.min(n - first, 1L << SEG_SHIFT);
+            _segments[s] = _channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + first * Integer.BYTES, cells * Integer.BYTES);
+            _segments[s].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
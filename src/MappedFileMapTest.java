@@ -0,0 +1,151 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileMapTest extends AbstractMap2DTest {
+
+    private final List<MappedFileMap> opened = new ArrayList<>();
+
+    @Override
+    protected Map2D newMap(int w, int h, int v) {
+        try {
+            MappedFileMap m = MappedFileMap.createTemp(Path.of(System.getProperty("java.io.tmpdir")), w, h, v);
+            opened.add(m);
+            return m;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected Map2D newMap(int[][] data) {
+        Map2D m = newMap(1, 1, 0);
+        m.init(data);
+        return m;
+    }
+
+    @AfterEach
+    void closeMaps() throws IOException {
+        for (MappedFileMap m : opened) {
+            m.close();
+        }
+    }
+
+    // Verifies cells and the cyclic flag written through the mapping survive close and reopen.
+    @Test
+    void testCreateCloseReopen() throws IOException {
+        Path file = Files.createTempFile("board", ".map");
+        try {
+            try (MappedFileMap m = MappedFileMap.create(file, 5, 4, 3)) {
+                m.setPixel(2, 1, WALL);
+                m.setCyclic(true);
+            }
+            try (MappedFileMap m = MappedFileMap.open(file)) {
+                assertEquals(5, m.getWidth());
+                assertEquals(4, m.getHeight());
+                assertTrue(m.isCyclic());
+                assertEquals(WALL, m.getPixel(2, 1));
+                assertEquals(3, m.getPixel(4, 3));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Verifies fill and allDistance run directly on an opened board file.
+    @Test
+    void testAlgorithmsOnOpenedFile() throws IOException {
+        Path file = Files.createTempFile("board", ".map");
+        try {
+            try (MappedFileMap m = MappedFileMap.create(file, 1, 1, 0)) {
+                m.init(new int[][]{
+                        {0, 0, 0},
+                        {0, WALL, 0},
+                        {0, 0, 0}
+                });
+                m.setCyclic(false);
+            }
+            try (MappedFileMap m = MappedFileMap.open(file)) {
+                Map2D d = m.allDistance(new Index2D(0, 0), WALL);
+                assertEquals(4, d.getPixel(2, 2));
+                assertEquals(-1, d.getPixel(1, 1));
+                assertEquals(8, m.fill(new Index2D(0, 0), 7));
+            }
+            try (MappedFileMap m = MappedFileMap.open(file)) {
+                assertEquals(7, m.getPixel(2, 2));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Verifies a file without a valid header is rejected.
+    @Test
+    void testOpenRejectsForeignFile() throws IOException {
+        Path file = Files.createTempFile("board", ".map");
+        try {
+            Files.write(file, new byte[64]);
+            assertThrows(IOException.class, () -> MappedFileMap.open(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Verifies distance maps and path scratch are file-backed, next to the board, and leave no files behind.
+    @Test
+    void testResultsStayInFiles() throws IOException {
+        Path dir = Files.createTempDirectory("boards");
+        Path file = dir.resolve("board.map");
+        try {
+            try (MappedFileMap m = MappedFileMap.create(file, 30, 20, 0)) {
+                m.setCyclic(false);
+                for (int y = 0; y < 19; y++) {
+                    m.setPixel(15, y, WALL);
+                }
+                Pixel2D[] path = m.shortestPath(new Index2D(0, 0), new Index2D(29, 0), WALL);
+                assertEquals(68, path.length);
+                assertEquals(new Index2D(15, 19), path[34]);
+
+                Map2D d = m.allDistance(new Index2D(0, 0), WALL);
+                assertTrue(d instanceof MappedFileMap);
+                assertEquals(67, d.getPixel(29, 0));
+                ((MappedFileMap) d).close();
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // Verifies a header whose width * height overflows an int is rejected before mapping.
+    @Test
+    void testOpenRejectsOversizedHeader() throws IOException {
+        Path file = Files.createTempFile("board", ".map");
+        try {
+            MappedFileMap.create(file, 2, 2, 0).close();
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(8, 1 << 16).putInt(12, 1 << 16);
+            Files.write(file, bytes);
+            IOException e = assertThrows(IOException.class, () -> MappedFileMap.open(file));
+            assertTrue(e.getMessage().startsWith("illegal map size"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
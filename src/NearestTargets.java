@@ -0,0 +1,80 @@
+package assignments.Ex3;
+
+/**
+ * The result of Map.nearestTargets: up to k target cells, nearest first, each with its
+ * BFS distance and the first step to take from the start towards it.
+ * Cells are kept as linear indices (x * height + y) in primitive arrays; the accessors decode them.
+ */
+public final class NearestTargets {
+    private final int _height;
+    private final int _count;
+    private final int[] _cells;
+    private final int[] _dist;
+    private final int[] _first;
+
+    /**
+     * @param height height of the searched map, to decode the cell indices
+     * @param count number of results
+     * @param cells target cells
+     * @param dist distances of the targets
+     * @param first first step towards each target
+     */
+    NearestTargets(int height, int count, int[] cells, int[] dist, int[] first) {
+        _height = height;
+        _count = count;
+        _cells = cells;
+        _dist = dist;
+        _first = first;
+    }
+
+    /**
+     * @return number of targets found (at most k)
+     */
+    public int size() {
+        return _count;
+    }
+
+    /**
+     * @return the i-th nearest target
+     */
+    public Pixel2D getTarget(int i) {
+        return toPixel(_cells[check(i)]);
+    }
+
+    /**
+     * @return the shortest-path distance from the start to the i-th target
+     */
+    public int getDistance(int i) {
+        return _dist[check(i)];
+    }
+
+    /**
+     * @return the neighbor of the start on a shortest path to the i-th target
+     */
+    public Pixel2D getFirstStep(int i) {
+        return toPixel(_first[check(i)]);
+    }
+
+    private int check(int i) {
+        if (i < 0 || i >= _count) {
+            throw new RuntimeException("index " + i + " out of range, size " + _count);
+        }
+        return i;
+    }
+
+    private Pixel2D toPixel(int cell) {
+        return new Index2D(cell / _height, cell % _height);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < _count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(getTarget(i)).append(" d=").append(_dist[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
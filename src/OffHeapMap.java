@@ -0,0 +1,76 @@
+package assignments.Ex3;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A Map2D whose cells live off-heap, in a direct ByteBuffer (4 bytes per cell).
+ * Only a small header object stays on the Java heap, so very large boards do not
+ * add to GC work. It is a drop-in alternative to Map: same init, getPixel/setPixel,
+ * fill, shortestPath, allDistance and cyclic semantics (see AbstractMap2D).
+ * A single buffer holds up to Integer.MAX_VALUE / 4 cells.
+ */
+public class OffHeapMap extends AbstractMap2D {
+    private static final int MAX_CELLS = Integer.MAX_VALUE / Integer.BYTES;
+
+    private IntBuffer _cells;
+
+    /**
+     * Constructs a map of size w*h, filled with value v.
+     * @param w width
+     * @param h height
+     * @param v initial value
+     */
+    public OffHeapMap(int w, int h, int v) {
+        init(w, h, v);
+    }
+
+    /**
+     * Constructs a square map of size*size, filled with 0.
+     * @param size width and height
+     */
+    public OffHeapMap(int size) {
+        this(size, size, 0);
+    }
+
+    /**
+     * Constructs a map from a given 2D array.
+     * @param data 2D array of integers
+     */
+    public OffHeapMap(int[][] data) {
+        init(data);
+    }
+
+    @Override
+    protected void allocate(int w, int h, int v) {
+        long n = (long) w * h;
+        if (w < 0 || h < 0 || n > MAX_CELLS) {
+            throw new RuntimeException("illegal map size: " + w + "x" + h);
+        }
+        _cells = ByteBuffer.allocateDirect((int) n * Integer.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+        // A fresh direct buffer is already zeroed.
+        if (v != 0) {
+            for (int i = 0; i < n; i++) {
+                _cells.put(i, v);
+            }
+        }
+    }
+
+    @Override
+    protected int get(int index) {
+        return _cells.get(index);
+    }
+
+    @Override
+    protected void set(int index, int v) {
+        _cells.put(index, v);
+    }
+
+    @Override
+    protected AbstractMap2D newMap(int w, int h, int v) {
+        return new OffHeapMap(w, h, v);
+    }
+}
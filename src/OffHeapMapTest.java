@@ -0,0 +1,44 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapMapTest extends AbstractMap2DTest {
+
+    @Override
+    protected Map2D newMap(int w, int h, int v) {
+        return new OffHeapMap(w, h, v);
+    }
+
+    @Override
+    protected Map2D newMap(int[][] data) {
+        return new OffHeapMap(data);
+    }
+
+    // Verifies allDistance matches Map and returns an off-heap map.
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testAllDistanceMatchesMap() {
+        Map2D ref = new Map(wrapBoard3x3());
+        Map2D m = newMap(wrapBoard3x3());
+        ref.setCyclic(true);
+        m.setCyclic(true);
+
+        Map2D d = m.allDistance(p(0, 0), WALL);
+        assertTrue(d instanceof OffHeapMap);
+        assertArrayEquals(ref.allDistance(p(0, 0), WALL).getMap(), d.getMap());
+    }
+
+    // Verifies a size above the off-heap cell limit is rejected and leaves the map as it was.
+    @Test
+    void testInitAboveCellLimitKeepsMap() {
+        Map2D m = newMap(3, 2, 4);
+        assertThrows(RuntimeException.class, () -> m.init(1 << 15, 1 << 15, 0));
+        assertEquals(3, m.getWidth());
+        assertEquals(2, m.getHeight());
+        assertEquals(4, m.getPixel(2, 1));
+    }
+}
@@ -0,0 +1,23 @@
+package assignments.Ex3;
+
+/**
+ * The search algorithms Map.shortestPath can run. All of them return a shortest path
+ * (the same length as BFS), or null when there is none; when several shortest paths
+ * exist they may pick different ones.
+ */
+public enum PathEngine {
+    /** Plain breadth-first search from the start point. */
+    BFS,
+    /** Breadth-first search from both ends at once, stopping when the frontiers meet. */
+    BIDIRECTIONAL,
+    /**
+     * A* guided by the Manhattan distance to the end point (the shorter way around when cyclic).
+     * Expands far fewer cells than BFS when the way to the target is fairly direct.
+     */
+    ASTAR,
+    /**
+     * Jump Point Search: A* that skips straight runs of open cells and only stops where a path may
+     * need to turn. Suited to long queries across large open areas.
+     */
+    JPS
+}
@@ -0,0 +1,105 @@
+package assignments.Ex3;
+
+import java.util.Arrays;
+
+/**
+ * A copy-on-write Map2D whose snapshots share storage.
+ * Cells are kept in tiles of TILE_SIZE consecutive linear indices (a short column segment).
+ * snapshot() costs O(1): the copy shares every tile with this map, and each side copies
+ * a tile only the first time it writes into it (and its tile table once, on its first write).
+ * This lets many speculative game states share one base board.
+ */
+public class PersistentMap extends AbstractMap2D {
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    private int[][] _tiles;
+    // _owners[t] == _token iff this map may write into _tiles[t] in place.
+    private Object[] _owners;
+    private Object _token = new Object();
+    // True while _tiles/_owners are shared with another map.
+    private boolean _sharedTable;
+
+    /**
+     * Constructs a map of size w*h, filled with value v.
+     * @param w width
+     * @param h height
+     * @param v initial value
+     */
+    public PersistentMap(int w, int h, int v) {
+        init(w, h, v);
+    }
+
+    /**
+     * Constructs a map from a given 2D array.
+     * @param data 2D array of integers
+     */
+    public PersistentMap(int[][] data) {
+        init(data);
+    }
+
+    private PersistentMap(PersistentMap other) {
+        _width = other._width;
+        _height = other._height;
+        _cyclic = other._cyclic;
+        _tiles = other._tiles;
+        _owners = other._owners;
+        _sharedTable = true;
+    }
+
+    /**
+     * Returns an independent copy of this map in O(1).
+     * Later writes to either map never show in the other.
+     * @return a snapshot of the current state
+     */
+    public PersistentMap snapshot() {
+        // A fresh token disowns every tile, so this map copies before its next write as well.
+        _token = new Object();
+        _sharedTable = true;
+        return new PersistentMap(this);
+    }
+
+    @Override
+    protected void allocate(int w, int h, int v) {
+        int n = w * h;
+        int count = (n + TILE_MASK) >>> TILE_SHIFT;
+        // Every tile starts out as the same shared, unowned tile, so init only writes one tile.
+        int[] uniform = new int[TILE_SIZE];
+        Arrays.fill(uniform, v);
+        _tiles = new int[count][];
+        Arrays.fill(_tiles, uniform);
+        _owners = new Object[count];
+        _sharedTable = false;
+    }
+
+    @Override
+    protected int get(int index) {
+        return _tiles[index >>> TILE_SHIFT][index & TILE_MASK];
+    }
+
+    @Override
+    protected void set(int index, int v) {
+        int t = index >>> TILE_SHIFT;
+        int[] tile = _tiles[t];
+        if (tile[index & TILE_MASK] == v) {
+            return;
+        }
+        if (_sharedTable) {
+            _tiles = _tiles.clone();
+            _owners = new Object[_tiles.length];
+            _sharedTable = false;
+        }
+        if (_owners[t] != _token) {
+            tile = tile.clone();
+            _tiles[t] = tile;
+            _owners[t] = _token;
+        }
+        tile[index & TILE_MASK] = v;
+    }
+
+    @Override
+    protected AbstractMap2D newMap(int w, int h, int v) {
+        return new PersistentMap(w, h, v);
+    }
+}
@@ -0,0 +1,54 @@
+package assignments.Ex3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentMapTest extends AbstractMap2DTest {
+
+    @Override
+    protected Map2D newMap(int w, int h, int v) {
+        return new PersistentMap(w, h, v);
+    }
+
+    @Override
+    protected Map2D newMap(int[][] data) {
+        return new PersistentMap(data);
+    }
+
+    // Verifies writes after a snapshot stay on their own side.
+    @Test
+    void testSnapshotIsIndependent() {
+        PersistentMap base = new PersistentMap(10, 10, 0);
+        base.setPixel(1, 1, WALL);
+        PersistentMap snap = base.snapshot();
+
+        base.setPixel(2, 2, WALL);
+        snap.setPixel(3, 3, 5);
+
+        assertEquals(WALL, snap.getPixel(1, 1));
+        assertEquals(0, snap.getPixel(2, 2));
+        assertEquals(5, snap.getPixel(3, 3));
+        assertEquals(WALL, base.getPixel(2, 2));
+        assertEquals(0, base.getPixel(3, 3));
+    }
+
+    // Verifies a fill on a snapshot of a snapshot leaves the earlier states untouched.
+    @Test
+    void testFillOnNestedSnapshot() {
+        PersistentMap base = new PersistentMap(new int[][]{
+                {0, 1, 0},
+                {1, 1, 1},
+                {0, 1, 0}
+        });
+        base.setCyclic(true);
+        PersistentMap first = base.snapshot();
+        PersistentMap second = first.snapshot();
+
+        assertEquals(4, second.fill(new Index2D(0, 0), 9));
+        assertEquals(9, second.getPixel(2, 2));
+        assertEquals(0, first.getPixel(2, 2));
+        assertEquals(0, base.getPixel(2, 2));
+        assertTrue(second.isCyclic());
+    }
+}
@@ -0,0 +1,38 @@
+package assignments.Ex3;
+
+/**
+ * The result of Map.weightedPath: the cells of a cheapest path and its total cost
+ * (the sum of the costs of every cell entered, the start cell excluded).
+ */
+public final class WeightedPath {
+    private final Pixel2D[] _path;
+    private final int _cost;
+
+    /**
+     * @param path cells of the path, start first
+     * @param cost total cost
+     */
+    public WeightedPath(Pixel2D[] path, int cost) {
+        _path = path;
+        _cost = cost;
+    }
+
+    /**
+     * @return the cells of the path, start first and end last
+     */
+    public Pixel2D[] getPath() {
+        return _path;
+    }
+
+    /**
+     * @return the total cost of the path
+     */
+    public int getCost() {
+        return _cost;
+    }
+
+    @Override
+    public String toString() {
+        return "cost " + _cost + ", " + _path.length + " cells";
+    }
+}